@@ -0,0 +1,211 @@
+package sample;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс складывает несколько баз данных шаблонов по непересекающимся группам клеток
+ * в одну допустимую эвристику.
+ * \details Поддерживаются разбиения 7-8 и 6-6-3 для board 4x4 и 6-6-6-6 для board 5x5.
+ * Файлы баз ищутся в каталоге из свойства pdb.dir (по умолчанию "pdb") и создаются методом main().
+ */
+public class AdditivePatternDatabase implements Heuristic {
+    private static final int[][][] PARTITIONS_4 = {
+            {{1, 2, 3, 4, 5, 6, 7, 8}, {9, 10, 11, 12, 13, 14, 15}},
+            {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}}
+    };
+    private static final int[][][] PARTITIONS_5 = {
+            {{1, 2, 3, 6, 7, 8}, {4, 5, 9, 10, 14, 15}, {11, 12, 16, 17, 21, 22}, {13, 18, 19, 20, 23, 24}}
+    };
+    private static final Map<Integer, AdditivePatternDatabase> LOADED = new HashMap<Integer, AdditivePatternDatabase>();
+
+    private final int dimension;
+    private final PatternDatabase[] databases;
+    private final int[] patternOf;
+    private final String name;
+
+    /**
+     * Данный конструктор объединяет базы одного разбиения.
+     *
+     * @param dimension
+     * @param databases
+     */
+    private AdditivePatternDatabase(int dimension, PatternDatabase[] databases) {
+        this.dimension = dimension;
+        this.databases = databases;
+        this.patternOf = new int[dimension * dimension];
+        StringBuilder s = new StringBuilder("pdb ");
+        for (int p = 0; p < databases.length; p++) {
+            for (int tile : databases[p].tiles())
+                this.patternOf[tile] = p;
+            s.append(p > 0 ? "-" : "").append(databases[p].tiles().length);
+        }
+        this.name = s.toString();
+    }
+
+    /**
+     * \brief Данный метод возвращает эвристику для board заданной размерности.
+     * \details Разбиения перебираются от самого сильного; берётся первое, для которого найдены все файлы.
+     * Результат запоминается, поэтому файлы отображаются в память один раз на процесс.
+     *
+     * @param dimension
+     * @return эвристика или null, если баз нет - тогда используется манхэтеновское число
+     */
+    public static synchronized AdditivePatternDatabase forDimension(int dimension) {
+        if (LOADED.containsKey(dimension))
+            return LOADED.get(dimension);
+        AdditivePatternDatabase result = null;
+        File dir = new File(System.getProperty("pdb.dir", "pdb"));
+        try {
+            for (int[][] partition : partitions(dimension)) {
+                PatternDatabase[] databases = new PatternDatabase[partition.length];
+                boolean complete = true;
+                for (int p = 0; p < partition.length && complete; p++) {
+                    databases[p] = PatternDatabase.open(dimension, partition[p], dir);
+                    complete = databases[p] != null;
+                }
+                if (complete) {
+                    result = new AdditivePatternDatabase(dimension, databases);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Pattern databases ignored: " + e.getMessage());
+        }
+        LOADED.put(dimension, result);
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает известные разбиения для board заданной размерности.
+     *
+     * @param dimension
+     * @return разбиения, от самого сильного
+     */
+    private static int[][][] partitions(int dimension) {
+        if (dimension == 4)
+            return PARTITIONS_4;
+        if (dimension == 5)
+            return PARTITIONS_5;
+        return new int[0][][];
+    }
+
+    /**
+     * Данный метод возвращает краткое имя разбиения, например "pdb 6-6-3".
+     *
+     * @return this.name
+     */
+    @Override
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * \brief Данный метод находит оценку расстояния до цели для board.
+     * \details Положения клеток берутся из board (Board.positions()).
+     *
+     * @param board
+     * @return manhattan плюс добавки всех баз
+     */
+    @Override
+    public int estimate(Board board) {
+        int[] position = board.positions();
+        int result = board.getManhattanNumber();
+        for (int p = 0; p < this.databases.length; p++)
+            result += this.extra(p, position);
+        return result;
+    }
+
+    /**
+     * \brief Данный метод пересчитывает оценку после сдвига клетки.
+     * \details Меняется только база группы, в которую входит сдвинутая клетка:
+     * её добавка находится для положения после хода и для положения до хода. Положения клеток board
+     * поддерживает сам (Board.positions()), поэтому для положения до хода клетка лишь временно
+     * возвращается в ячейку from - без обхода board и без создания массивов.
+     */
+    @Override
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        int[] position = board.positions();
+        int p = this.patternOf[tile];
+        int after = this.extra(p, position);
+        position[tile] = from;
+        int before = this.extra(p, position);
+        position[tile] = to;
+        return estimate + ManhattanHeuristic.distance(tile, to, this.dimension)
+                - ManhattanHeuristic.distance(tile, from, this.dimension) + after - before;
+    }
+
+    /**
+     * Данный метод возвращает номер группы, в которую входит клетка tile.
+     *
+     * @param tile
+     * @return номер группы
+     */
+    public int patternOf(int tile) {
+        return this.patternOf[tile];
+    }
+
+    /**
+     * Данный метод возвращает количество групп.
+     *
+     * @return количество баз
+     */
+    public int patterns() {
+        return this.databases.length;
+    }
+
+    /**
+     * \brief Данный метод возвращает добавку базы pattern к манхэтеновскому числу.
+     *
+     * @param pattern номер группы
+     * @param position положение каждой клетки (индекс - значение клетки)
+     * @return добавка
+     */
+    public int extra(int pattern, int[] position) {
+        return this.databases[pattern].extra(position);
+    }
+
+    /**
+     * \brief Данный метод строит файлы баз для board заданной размерности.
+     * \details Пример: java sample.AdditivePatternDatabase 4 663
+     * (разбиения "87" и "663" для 4x4, "6666" для 5x5 - размеры групп по порядку; без второго аргумента
+     * строится первое). Построение базы из 8 клеток требует нескольких гигабайт памяти.
+     *
+     * @param args
+     * @throws IOException
+     * @throws IllegalArgumentException если для размерности нет разбиений или имя разбиения неизвестно
+     */
+    public static void main(String[] args) throws IOException {
+        int dimension = Integer.parseInt(args[0]);
+        int[][][] partitions = partitions(dimension);
+        if (partitions.length == 0)
+            throw new IllegalArgumentException("No partitions for dimension " + dimension);
+        int[][] partition = args.length > 1 ? null : partitions[0];
+        StringBuilder known = new StringBuilder();
+        for (int[][] candidate : partitions) {
+            StringBuilder s = new StringBuilder();
+            for (int[] tiles : candidate)
+                s.append(tiles.length);
+            if (args.length > 1 && s.toString().equals(args[1]))
+                partition = candidate;
+            known.append(known.length() == 0 ? "" : ", ").append(s);
+        }
+        if (partition == null)
+            throw new IllegalArgumentException("Unknown partition " + args[1] + " for dimension " + dimension
+                    + ", expected one of " + known);
+        File dir = new File(System.getProperty("pdb.dir", "pdb"));
+        dir.mkdirs();
+        for (int[] tiles : partition) {
+            File file = new File(dir, PatternDatabase.fileName(dimension, tiles));
+            long start = System.nanoTime();
+            PatternDatabase.generate(dimension, tiles, file);
+            System.out.printf("%s: %d entries, %.1f s%n", file, PatternDatabase.permutations(dimension * dimension, tiles.length),
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
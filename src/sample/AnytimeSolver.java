@@ -0,0 +1,335 @@
+package sample;
+
+import java.util.Arrays;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - поиск ARA* (anytime weighted A*): быстро находит первое решение с завышенной эвристикой,
+ * а затем, пока позволяет бюджет, уменьшает вес и улучшает решение, не начиная поиск заново.
+ * \details Приоритет узла - WEIGHT_SCALE * g + W * h, где вес w = W / WEIGHT_SCALE не меньше 1, поэтому приоритеты
+ * целые и подходят для IntBucketQueue. Итерация раскрывает каждое состояние не больше одного раза; если до уже
+ * раскрытого состояния найден более короткий путь, оно откладывается в список incons и вместе с открытыми узлами
+ * переходит в очередь следующей итерации с новым весом. Итерация заканчивается, когда приоритет лучшей цели
+ * не больше наименьшего приоритета в очереди.
+ *
+ * После каждой итерации слушатель получает решение и доказанную границу субоптимальности:
+ * min(w, g(цели) / min(g + h)) по открытым и отложенным узлам, т.е. решение длиннее оптимального не больше
+ * чем во столько раз. Поиск останавливается при границе 1 (решение оптимально) или когда бюджет SearchBudget
+ * либо память maxBytes исчерпаны; тогда возвращается лучшее найденное решение.
+ *
+ * Как и в Solver.startSolving(), узлы хранятся в NodeArena, а таблица StateTable для каждого состояния хранит
+ * номер узла с лучшим путём, поэтому устаревшие узлы в очереди распознаются сравнением номеров.
+ */
+public class AnytimeSolver {
+    /** Знаменатель веса: вес задаётся с шагом 1 / WEIGHT_SCALE. */
+    public static final int WEIGHT_SCALE = 4;
+    /** Насколько уменьшается вес между итерациями (в единицах 1 / WEIGHT_SCALE). */
+    private static final int WEIGHT_STEP = 2;
+
+    /**
+     * \brief Данный интерфейс получает улучшенные решения.
+     * \details Вызывается из потока поиска после каждой итерации, нашедшей решение.
+     */
+    public interface Listener {
+        /**
+         * @param path ходы пустой клетки
+         * @param suboptimality во сколько раз решение может быть длиннее оптимального (не меньше 1)
+         */
+        void improved(int[] path, double suboptimality);
+    }
+
+    private final Board board;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final long maxBytes;
+    private final Listener listener;
+    private final NodeArena arena;
+    private final StateTable best;
+    private int[] cost = new int[1024];
+    private int[] estimates = new int[1024];
+    private int[] closedIn = new int[1024];
+    private int[] incons = new int[64];
+    private int inconsSize = 0;
+    private IntBucketQueue open = new IntBucketQueue();
+    private int weight;
+    private int iteration = 0;
+    private int goal = -1;
+    private int[] path = null;
+    private double suboptimality = Double.POSITIVE_INFINITY;
+    private long nodes = 0;
+    private long generated = 0;
+    private long duplicates = 0;
+    private int peakOpen = 0;
+
+    /**
+     * @param initial изначальный решаемый board (не изменяется)
+     * @param heuristic допустимая эвристика
+     * @param budget ограничение по времени и узлам
+     * @param weight начальный вес (не меньше 1), округляется до 1 / WEIGHT_SCALE
+     * @param maxBytes ограничение памяти под узлы, 0 - без ограничения
+     * @param listener получатель улучшенных решений или null
+     */
+    public AnytimeSolver(Board initial, Heuristic heuristic, SearchBudget budget, double weight, long maxBytes,
+                         Listener listener) {
+        if (!(weight >= 1))
+            throw new IllegalArgumentException("Weight must be at least 1, got " + weight);
+        this.board = new Board(initial);
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.weight = (int) Math.round(weight * WEIGHT_SCALE);
+        this.maxBytes = maxBytes;
+        this.listener = listener;
+        this.arena = new NodeArena(this.board.stateLength());
+        this.best = new StateTable(initial.dimension());
+    }
+
+    /**
+     * \brief Данный метод ищет решения, пока не докажет оптимальность или не исчерпает бюджет.
+     *
+     * @return ходы лучшего найденного решения
+     * @throws SearchAbortedException если бюджет исчерпан раньше, чем найдено первое решение
+     */
+    public int[] solve() {
+        int estimate = this.heuristic.estimate(this.board);
+        if (estimate == 0 && this.board.isGoal())
+            return new int[0];
+        int root = this.addNode(-1, 0, 0, estimate);
+        this.best.put(new Board(this.board), root);
+        this.open.insert(root, this.weight * estimate, estimate);
+        try {
+            while (this.suboptimality > 1) {
+                this.iteration++;
+                this.improvePath();
+                if (this.goal < 0)
+                    throw new IllegalStateException("Board is not solvable");
+                this.publish();
+            }
+            return this.path;
+        } catch (SearchAbortedException e) {
+            if (this.path == null)
+                throw e;
+            return this.path;
+        }
+    }
+
+    /**
+     * \brief Данный метод - одна итерация ARA*: раскрывает узлы, пока лучшая цель не станет не хуже очереди.
+     *
+     * @throws SearchAbortedException если бюджет исчерпан
+     */
+    private void improvePath() {
+        while (!this.open.isEmpty()) {
+            if (this.goal >= 0 && WEIGHT_SCALE * this.cost[this.goal] <= this.open.minPriority())
+                return;
+            int node = this.open.delMin();
+            int estimate = this.open.lastEstimate();
+            if (!this.isCurrent(node)) {
+                this.duplicates++;
+                continue;
+            }
+            this.closedIn[node] = this.iteration;
+            if ((++this.nodes & (SearchBudget.CHECK_INTERVAL - 1)) == 0) {
+                this.budget.check(this.nodes, this.open.size(), this.open.lastPriority());
+                if (this.maxBytes > 0 && (long) this.arena.size() * this.bytesPerNode() > this.maxBytes)
+                    throw new SearchAbortedException("memory limit", this.nodes);
+            }
+            this.expand(node, estimate);
+            if (this.open.size() > this.peakOpen)
+                this.peakOpen = this.open.size();
+        }
+    }
+
+    /**
+     * \brief Данный метод получает соседей узла сдвигом board на месте.
+     * \details Сосед добавляется, если до его состояния ещё не найден путь не длиннее. Если состояние уже раскрыто
+     * в этой итерации, новый узел откладывается в incons, иначе попадает в очередь.
+     *
+     * @param node
+     * @param estimate оценка узла
+     */
+    private void expand(int node, int estimate) {
+        int moves = this.cost[node] + 1;
+        int from = this.board.blankIndex();
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            int to = this.board.target(direction);
+            if (to < 0)
+                continue;
+            int tile = this.board.tile(to);
+            this.board.slide(to);
+            this.generated++;
+            int known = this.best.get(this.board);
+            if (known != StateTable.NOT_FOUND && this.cost[known] <= moves) {
+                this.duplicates++;
+            } else {
+                int childEstimate = known != StateTable.NOT_FOUND ? this.estimates[known]
+                        : this.heuristic.update(this.board, estimate, tile, to, from);
+                int child = this.addNode(node, direction, moves, childEstimate);
+                this.best.put(this.board.isCompact() ? this.board : new Board(this.board), child);
+                if (childEstimate == 0 && this.board.isGoal())
+                    this.goal = child;
+                else if (known != StateTable.NOT_FOUND && this.closedIn[known] == this.iteration)
+                    this.defer(child);
+                else
+                    this.open.insert(child, WEIGHT_SCALE * moves + this.weight * childEstimate, childEstimate);
+            }
+            this.board.slide(from);
+        }
+    }
+
+    /**
+     * \brief Данный метод сообщает решение, найденное итерацией, и переносит очередь на следующую итерацию.
+     * \details Актуальные узлы очереди и incons собираются в одну очередь; по ним же считается нижняя граница
+     * длины оптимального решения min(g + h) и граница субоптимальности. Приоритеты пересчитываются
+     * с весом следующей итерации: он меньше текущего на WEIGHT_STEP и не больше найденной границы.
+     */
+    private void publish() {
+        int[] pending = Arrays.copyOf(this.incons, this.inconsSize + this.open.size());
+        int count = 0;
+        for (int i = 0; i < this.inconsSize; i++)
+            if (this.isCurrent(pending[i]))
+                pending[count++] = pending[i];
+        this.inconsSize = 0;
+        while (!this.open.isEmpty()) {
+            int node = this.open.delMin();
+            if (this.isCurrent(node))
+                pending[count++] = node;
+        }
+        int lower = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++)
+            lower = Math.min(lower, this.cost[pending[i]] + this.estimates[pending[i]]);
+        int length = this.cost[this.goal];
+        double bound = Math.min((double) this.weight / WEIGHT_SCALE, lower >= length ? 1 : (double) length / lower);
+        if (this.path == null || length < this.path.length || bound < this.suboptimality) {
+            if (this.path == null || length < this.path.length)
+                this.path = this.arena.path(this.goal);
+            this.suboptimality = Math.min(this.suboptimality, bound);
+            if (this.listener != null)
+                this.listener.improved(this.path, this.suboptimality);
+        }
+        this.weight = Math.max(WEIGHT_SCALE, Math.min(this.weight - WEIGHT_STEP,
+                (int) Math.floor(this.suboptimality * WEIGHT_SCALE)));
+        for (int i = 0; i < count; i++) {
+            int node = pending[i];
+            this.open.insert(node, WEIGHT_SCALE * this.cost[node] + this.weight * this.estimates[node],
+                    this.estimates[node]);
+        }
+    }
+
+    /**
+     * Данный метод проверяет, что узел хранит лучший известный путь до своего состояния (не устарел).
+     *
+     * @param node
+     * @return true or false
+     */
+    private boolean isCurrent(int node) {
+        this.arena.load(node, this.board);
+        return this.best.get(this.board) == node;
+    }
+
+    /**
+     * Данный метод добавляет узел в хранилище вместе с количеством ходов и оценкой.
+     *
+     * @param parent
+     * @param move
+     * @param moves
+     * @param estimate
+     * @return номер узла
+     */
+    private int addNode(int parent, int move, int moves, int estimate) {
+        int node = this.arena.add(this.board, parent, move);
+        if (node == this.cost.length) {
+            int capacity = 2 * node;
+            this.cost = Arrays.copyOf(this.cost, capacity);
+            this.estimates = Arrays.copyOf(this.estimates, capacity);
+            this.closedIn = Arrays.copyOf(this.closedIn, capacity);
+        }
+        this.cost[node] = moves;
+        this.estimates[node] = estimate;
+        return node;
+    }
+
+    /**
+     * Данный метод откладывает узел в список incons до следующей итерации.
+     *
+     * @param node
+     */
+    private void defer(int node) {
+        if (this.inconsSize == this.incons.length)
+            this.incons = Arrays.copyOf(this.incons, 2 * this.inconsSize);
+        this.incons[this.inconsSize++] = node;
+    }
+
+    /**
+     * Данный метод оценивает память на один узел: хранилище, три массива int и ячейка таблицы StateTable.
+     *
+     * @return байт на узел
+     */
+    private int bytesPerNode() {
+        return this.arena.bytesPerNode() + 12 + (this.board.isCompact() ? 24 : 16 + this.arena.bytesPerNode());
+    }
+
+    /**
+     * Данный метод возвращает текущий вес в виде числа.
+     *
+     * @return w
+     */
+    public double weight() {
+        return (double) this.weight / WEIGHT_SCALE;
+    }
+
+    /**
+     * Данный метод возвращает доказанную границу субоптимальности лучшего решения.
+     *
+     * @return граница или Double.POSITIVE_INFINITY, если решение ещё не найдено
+     */
+    public double suboptimality() {
+        return this.suboptimality;
+    }
+
+    /**
+     * Данный метод возвращает количество итераций (весов), с которыми вёлся поиск.
+     *
+     * @return this.iteration
+     */
+    public int iterations() {
+        return this.iteration;
+    }
+
+    /**
+     * Данный метод возвращает количество раскрытых узлов за все итерации.
+     *
+     * @return this.nodes
+     */
+    public long nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Данный метод возвращает количество сгенерированных соседей.
+     *
+     * @return this.generated
+     */
+    public long generated() {
+        return this.generated;
+    }
+
+    /**
+     * Данный метод возвращает количество отброшенных повторных и устаревших узлов.
+     *
+     * @return this.duplicates
+     */
+    public long duplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Данный метод возвращает наибольший размер очереди.
+     *
+     * @return this.peakOpen
+     */
+    public int peakOpen() {
+        return this.peakOpen;
+    }
+}
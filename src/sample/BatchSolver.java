@@ -0,0 +1,287 @@
+package sample;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс решает поток головоломок из файла на пуле потоков и пишет краткие результаты.
+ * \details Головоломка во входном файле записывается либо одной строкой из N^2 чисел,
+ * либо в формате Solver.main: число N, затем N^2 чисел на следующих строках.
+ * Пустые строки и строки, начинающиеся с '#', пропускаются.
+ *
+ * Для каждой головоломки выводится строка "номер ходы строка_ходов раскрыто_узлов время_мс",
+ * (для уже собранной - строка ходов "-"), для нерешаемых - "номер unsolvable", при ошибке - "номер error сообщение".
+ * Одновременно в работе не больше window головоломок: чтение файла ждёт, пока освободится место,
+ * поэтому память не зависит от размера файла. По умолчанию результаты выводятся в порядке входа,
+ * с ключом -unordered - по мере готовности (с номером головоломки).
+ */
+public class BatchSolver {
+    private final Solver.Engine engine;
+    private final String heuristic;
+    private final int threads;
+    private final boolean ordered;
+    private final Semaphore window;
+    private final Map<Long, String> pending = new HashMap<Long, String>();
+    private Writer out;
+    private long next = 0;
+    private IOException failure = null;
+
+    /**
+     * @param engine алгоритм поиска
+     * @param heuristic имя эвристики или null - эвристика по умолчанию
+     * @param threads количество потоков
+     * @param ordered выводить ли результаты в порядке входа
+     */
+    public BatchSolver(Solver.Engine engine, String heuristic, int threads, boolean ordered) {
+        this.engine = engine;
+        this.heuristic = heuristic;
+        this.threads = threads;
+        this.ordered = ordered;
+        this.window = new Semaphore(4 * threads);
+    }
+
+    /**
+     * \brief Данный метод читает все головоломки из in, решает их и пишет результаты в out.
+     *
+     * @param in
+     * @param out
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void run(Reader in, Writer out) throws IOException, InterruptedException {
+        this.out = out;
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        BufferedReader reader = new BufferedReader(in);
+        try {
+            long index = 0;
+            while (true) {
+                int[][] puzzle;
+                try {
+                    puzzle = read(reader);
+                } catch (IllegalArgumentException e) {
+                    this.window.acquire();
+                    long number = index++;
+                    this.complete(number, number + " error " + e.getMessage());
+                    continue;
+                }
+                if (puzzle == null)
+                    break;
+                this.window.acquire();
+                final long number = index++;
+                final int[][] blocks = puzzle;
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        String line = number + " error search failed";
+                        try {
+                            line = solve(number, blocks);
+                        } finally {
+                            complete(number, line);
+                        }
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        synchronized (this) {
+            if (this.failure != null)
+                throw this.failure;
+            out.flush();
+        }
+    }
+
+    /**
+     * \brief Данный метод решает одну головоломку и формирует строку результата.
+     * \details Нерешаемые головоломки отсеиваются проверкой чётности до создания эвристики и поиска.
+     * Нехватка памяти или стека на одной головоломке тоже становится строкой ошибки: память поиска
+     * к этому моменту уже освобождена, и остальные головоломки решаются дальше. Слот в окне освобождается
+     * при любом исходе (complete() вызывается в finally), иначе run() ждал бы его вечно.
+     *
+     * @param number номер головоломки
+     * @param blocks
+     * @return строка результата
+     */
+    private String solve(long number, int[][] blocks) {
+        try {
+            Board initial = new Board(blocks);
+            if (!initial.isSolvable())
+                return number + " unsolvable";
+            Solver solver = new Solver(initial, this.engine, Heuristic.forName(this.heuristic, blocks.length));
+            String moves = solver.moves() == 0 ? "-" : solver.moveString();
+            return number + " " + solver.moves() + " " + moves + " " + solver.nodesExpanded()
+                    + " " + solver.elapsedNanos() / 1000000;
+        } catch (RuntimeException e) {
+            return number + " error " + e.getMessage();
+        } catch (OutOfMemoryError | StackOverflowError e) {
+            return number + " error " + e;
+        }
+    }
+
+    /**
+     * \brief Данный метод выводит результат головоломки number.
+     * \details В упорядоченном режиме результат ждёт в pending, пока не будут выведены все предыдущие;
+     * место в окне освобождается только после вывода, поэтому pending тоже ограничен.
+     *
+     * @param number
+     * @param line
+     */
+    private synchronized void complete(long number, String line) {
+        if (!this.ordered) {
+            this.write(line);
+            this.window.release();
+            return;
+        }
+        this.pending.put(number, line);
+        String ready;
+        while ((ready = this.pending.remove(this.next)) != null) {
+            this.write(ready);
+            this.next++;
+            this.window.release();
+        }
+    }
+
+    /**
+     * Данный метод пишет строку результата; первая ошибка записи запоминается и выбрасывается из run().
+     *
+     * @param line
+     */
+    private void write(String line) {
+        if (this.failure != null)
+            return;
+        try {
+            this.out.write(line);
+            this.out.write('\n');
+        } catch (IOException e) {
+            this.failure = e;
+        }
+    }
+
+    /**
+     * \brief Данный метод читает следующую головоломку.
+     *
+     * @param reader
+     * @return двумерный массив или null в конце файла
+     * @throws IOException
+     * @throws IllegalArgumentException если запись не является головоломкой (NumberFormatException - его подкласс);
+     * чтение продолжается со следующей строки. Размер N из заголовка проверяется до чтения клеток,
+     * поэтому огромное N не заставляет копить N^2 чисел в памяти
+     */
+    static int[][] read(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null)
+                return null;
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("#"));
+
+        List<Integer> values = new ArrayList<Integer>();
+        for (String token : line.split("[\\s,;]+"))
+            values.add(Integer.parseInt(token));
+        int n;
+        if (values.size() == 1) {
+            n = values.get(0);
+            if (n < 2 || n > Board.MAX_DIMENSION)
+                throw new IllegalArgumentException("Unsupported puzzle size " + n + ", expected 2.." + Board.MAX_DIMENSION);
+            values.clear();
+            while (values.size() < n * n) {
+                line = reader.readLine();
+                if (line == null)
+                    throw new IllegalArgumentException("Unexpected end of input in a " + n + "x" + n + " puzzle");
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+                for (String token : line.split("[\\s,;]+"))
+                    values.add(Integer.parseInt(token));
+            }
+        } else {
+            n = (int) Math.round(Math.sqrt(values.size()));
+        }
+        if (n < 2 || values.size() != n * n)
+            throw new IllegalArgumentException("Not a square puzzle: " + line);
+        int[][] blocks = new int[n][n];
+        for (int i = 0; i < n * n; i++)
+            blocks[i / n][i % n] = values.get(i);
+        return blocks;
+    }
+
+    /**
+     * \brief Данный метод находит алгоритм по имени из ключа -engine.
+     * \details Неизвестное имя завершает программу с ошибкой: иначе опечатка молча решала бы весь файл алгоритмом A*.
+     *
+     * @param name
+     * @return engine
+     */
+    private static Solver.Engine engine(String name) {
+        try {
+            return Solver.Engine.forName(name);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + "; expected one of astar, ida, parallel, external, reduction,"
+                    + " anytime, mm, auto");
+            System.exit(2);
+            return null;
+        }
+    }
+
+    /**
+     * \brief Данный метод - запуск пакетного решения из командной строки.
+     * \details Пример: java sample.BatchSolver puzzles.txt results.txt -threads=8 -engine=ida -heuristic=pdb
+     * Без входного файла (или с "-") головоломки читаются со стандартного ввода,
+     * без выходного файла результаты пишутся в стандартный вывод. Ключ -unordered отключает
+     * упорядочивание вывода.
+     *
+     * @param args
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String input = null;
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Solver.Engine engine = Solver.Engine.ASTAR;
+        String heuristic = null;
+        boolean ordered = true;
+        for (String arg : args) {
+            if (arg.startsWith("-threads="))
+                threads = Integer.parseInt(arg.substring("-threads=".length()));
+            else if (arg.startsWith("-engine="))
+                engine = engine(arg.substring("-engine=".length()));
+            else if (arg.startsWith("-heuristic="))
+                heuristic = arg.substring("-heuristic=".length());
+            else if (arg.equals("-unordered"))
+                ordered = false;
+            else if (input == null)
+                input = arg;
+            else
+                output = arg;
+        }
+        Reader in = input == null || input.equals("-") ? new InputStreamReader(System.in) : new FileReader(input);
+        Writer out = new BufferedWriter(output == null ? new OutputStreamWriter(System.out) : new FileWriter(output));
+        try {
+            new BatchSolver(engine, heuristic, threads, ordered).run(in, out);
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+}
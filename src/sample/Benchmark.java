@@ -0,0 +1,313 @@
+package sample;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - набор бенчмарков для горячих путей Board и Solver.
+ * \details Измеряются Board.neighbors(), manhattan(), hamming(), equals(), isSolvable()
+ * и полное решение головоломок. Корпус фиксирован: board 3x3 и 4x4 получаются случайным блужданием
+ * от цели с постоянным зерном, поэтому результаты разных запусков сравнимы. Дополнительно можно
+ * подать свой корпус файлом в формате BatchSolver (например, 4x4 экземпляры Корфа,
+ * переписанные под цель с пустой клеткой в конце).
+ *
+ * Для каждого бенчмарка после прогрева выполняется несколько замеров фиксированной длительности и
+ * выводится пропускная способность (операций в секунду), выделение памяти на операцию
+ * (по com.sun.management.ThreadMXBean), количество и время сборок мусора, а для Solver -
+ * ещё и раскрытые узлы в секунду. Результат каждой операции накапливается в поле sink,
+ * чтобы JIT не выбросил вычисление.
+ */
+public class Benchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+
+    private static volatile long sink;
+
+    private final long iterationNanos;
+
+    /**
+     * \brief Данный интерфейс - измеряемая операция над i-м элементом корпуса.
+     */
+    private interface Operation {
+        /**
+         * @param i номер операции
+         * @return любое число, зависящее от результата
+         */
+        long run(int i);
+    }
+
+    /**
+     * @param iterationMillis длительность одного замера в миллисекундах
+     */
+    public Benchmark(long iterationMillis) {
+        this.iterationNanos = iterationMillis * 1000000;
+    }
+
+    /**
+     * \brief Данный метод измеряет операцию и печатает строку результата.
+     * \details Операция вызывается с i = 0, 1, 2, ... до истечения длительности замера.
+     *
+     * @param name
+     * @param op
+     */
+    public void measure(String name, Operation op) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            this.iteration(op);
+        long ops = 0;
+        long nanos = 0;
+        long bytes = SearchMetrics.threadAllocatedBytes();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            ops += this.iteration(op);
+            nanos += System.nanoTime() - start;
+        }
+        bytes = SearchMetrics.threadAllocatedBytes() - bytes;
+        System.out.printf("%-32s %14.0f ops/s %12.1f B/op   gc %d (%d ms)%n", name, ops * 1e9 / nanos,
+                bytes < 0 ? Double.NaN : (double) bytes / ops, gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    /**
+     * Данный метод выполняет один замер.
+     *
+     * @param op
+     * @return количество выполненных операций
+     */
+    private long iteration(Operation op) {
+        long deadline = System.nanoTime() + this.iterationNanos;
+        long sum = 0;
+        int i = 0;
+        do {
+            for (int k = 0; k < 64; k++)
+                sum += op.run(i++);
+        } while (System.nanoTime() < deadline);
+        sink += sum;
+        return i;
+    }
+
+    /**
+     * \brief Данный метод решает каждый board корпуса и печатает время, узлы в секунду и выделение памяти.
+     * \details Решение занимает от миллисекунд до секунд, поэтому вместо замеров фиксированной длительности
+     * корпус решается целиком: один раз для прогрева и один раз с замером.
+     *
+     * @param name
+     * @param boards
+     * @param engine
+     * @param heuristic
+     */
+    public void solve(String name, Board[] boards, Solver.Engine engine, Heuristic heuristic) {
+        for (Board board : boards)
+            sink += new Solver(board, engine, heuristic).moves();
+        long nodes = 0;
+        long moves = 0;
+        long bytes = SearchMetrics.threadAllocatedBytes();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long start = System.nanoTime();
+        for (Board board : boards) {
+            Solver solver = new Solver(board, engine, heuristic);
+            nodes += solver.nodesExpanded();
+            moves += solver.moves();
+        }
+        long nanos = System.nanoTime() - start;
+        bytes = SearchMetrics.threadAllocatedBytes() - bytes;
+        sink += moves;
+        System.out.printf("%-32s %10.2f ms/solve %12.0f nodes/s %10.1f B/node   gc %d (%d ms)   moves %d%n", name,
+                nanos / 1e6 / boards.length, nodes * 1e9 / nanos, bytes < 0 ? Double.NaN : (double) bytes / nodes,
+                gcCount() - gcCount, gcMillis() - gcMillis, moves);
+    }
+
+    /**
+     * Данный метод возвращает общее количество сборок мусора.
+     *
+     * @return сумма по всем сборщикам
+     */
+    private static long gcCount() {
+        long result = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            result += Math.max(0, gc.getCollectionCount());
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает общее время сборок мусора в миллисекундах.
+     *
+     * @return сумма по всем сборщикам
+     */
+    private static long gcMillis() {
+        long result = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            result += Math.max(0, gc.getCollectionTime());
+        return result;
+    }
+
+    /**
+     * \brief Данный метод строит корпус: count board, полученных случайным блужданием от цели (BoardGenerator).
+     *
+     * @param dimension
+     * @param count
+     * @param steps длина блуждания
+     * @param seed
+     * @return корпус
+     */
+    public static Board[] corpus(int dimension, int count, int steps, long seed) {
+        BoardGenerator generator = new BoardGenerator(seed);
+        Board[] boards = new Board[count];
+        for (int i = 0; i < count; i++)
+            boards[i] = generator.walk(dimension, steps);
+        return boards;
+    }
+
+    /**
+     * Данный метод читает корпус из файла в формате BatchSolver.
+     *
+     * @param fileName
+     * @return корпус
+     * @throws IOException
+     */
+    public static Board[] corpus(String fileName) throws IOException {
+        List<Board> boards = new ArrayList<Board>();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try {
+            int[][] blocks;
+            while ((blocks = BatchSolver.read(reader)) != null)
+                boards.add(new Board(blocks));
+        } finally {
+            reader.close();
+        }
+        return boards.toArray(new Board[0]);
+    }
+
+    /**
+     * \brief Данный метод измеряет операции над board одного корпуса.
+     *
+     * @param label
+     * @param boards
+     */
+    private void boardBenchmarks(String label, final Board[] boards) {
+        final int n = boards.length;
+        final Board[] copies = new Board[n];
+        final int[][][] arrays = new int[n][][];
+        for (int i = 0; i < n; i++) {
+            arrays[i] = boards[i].toArray();
+            copies[i] = new Board(arrays[i]);
+        }
+
+        this.measure(label + " neighbors()", new Operation() {
+            @Override
+            public long run(int i) {
+                long sum = 0;
+                for (Board b : boards[i % n].neighbors())
+                    sum += b.blankIndex();
+                return sum;
+            }
+        });
+        this.measure(label + " manhattan()", new Operation() {
+            @Override
+            public long run(int i) {
+                return boards[i % n].manhattan();
+            }
+        });
+        this.measure(label + " hamming()", new Operation() {
+            @Override
+            public long run(int i) {
+                return boards[i % n].hamming();
+            }
+        });
+        this.measure(label + " equals() equal", new Operation() {
+            @Override
+            public long run(int i) {
+                return boards[i % n].equals(copies[i % n]) ? 1 : 0;
+            }
+        });
+        this.measure(label + " equals() different", new Operation() {
+            @Override
+            public long run(int i) {
+                return boards[i % n].equals(boards[(i + 1) % n]) ? 1 : 0;
+            }
+        });
+        this.measure(label + " Board(int[][])", new Operation() {
+            @Override
+            public long run(int i) {
+                return new Board(arrays[i % n]).blankIndex();
+            }
+        });
+        // решаемость запоминается в board, поэтому для каждого вызова строится новый board
+        this.measure(label + " Board(int[][]).isSolvable()", new Operation() {
+            @Override
+            public long run(int i) {
+                return new Board(arrays[i % n]).isSolvable() ? 1 : 0;
+            }
+        });
+    }
+
+    /**
+     * \brief Данный метод - запуск бенчмарков.
+     * \details Аргументы (все необязательные): -time=мс (длительность замера, по умолчанию 500),
+     * -corpus=файл (дополнительный корпус), -skip-solver (не измерять решение), -compare (решать корпус из файла
+     * ещё и однонаправленным A* и двунаправленным MM - для глубоких 4x4 A* нужно много памяти).
+     * Пример: java -Xms1g -Xmx1g sample.Benchmark -time=1000 -corpus=korf100.txt
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        long millis = 500;
+        String file = null;
+        boolean solver = true;
+        boolean compare = false;
+        for (String arg : args) {
+            if (arg.startsWith("-time="))
+                millis = Long.parseLong(arg.substring("-time=".length()));
+            else if (arg.startsWith("-corpus="))
+                file = arg.substring("-corpus=".length());
+            else if (arg.equals("-skip-solver"))
+                solver = false;
+            else if (arg.equals("-compare"))
+                compare = true;
+        }
+        // одни и те же board решаются много раз, поэтому кэш решений выключается, если он не задан явно
+        if (System.getProperty("solver.cache") == null)
+            System.setProperty("solver.cache", "0");
+        Benchmark benchmark = new Benchmark(millis);
+        Board[] small = corpus(3, 100, 200, 3);
+        Board[] large = corpus(4, 20, 60, 4);
+        System.out.println("# java " + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors() + " cpu");
+        benchmark.boardBenchmarks("3x3", small);
+        benchmark.boardBenchmarks("4x4", large);
+        if (solver) {
+            benchmark.solve("solve 3x3 table", small, Solver.Engine.ASTAR, Heuristic.defaultFor(3));
+            System.setProperty("solver.lookup", "false");
+            benchmark.solve("solve 3x3 A*", small, Solver.Engine.ASTAR, Heuristic.defaultFor(3));
+            benchmark.solve("solve 3x3 IDA*", small, Solver.Engine.IDASTAR, Heuristic.defaultFor(3));
+            benchmark.solve("solve 3x3 MM", small, Solver.Engine.BIDIRECTIONAL, Heuristic.defaultFor(3));
+            benchmark.solve("solve 4x4 A*", large, Solver.Engine.ASTAR, Heuristic.defaultFor(4));
+            benchmark.solve("solve 4x4 IDA*", large, Solver.Engine.IDASTAR, Heuristic.defaultFor(4));
+            benchmark.solve("solve 4x4 MM", large, Solver.Engine.BIDIRECTIONAL, Heuristic.defaultFor(4));
+        }
+        if (file != null) {
+            Board[] custom = corpus(file);
+            benchmark.boardBenchmarks("file", custom);
+            if (solver) {
+                benchmark.solve("solve file IDA*", custom, Solver.Engine.IDASTAR,
+                        Heuristic.defaultFor(custom[0].dimension()));
+                if (compare) {
+                    benchmark.solve("solve file A*", custom, Solver.Engine.ASTAR,
+                            Heuristic.defaultFor(custom[0].dimension()));
+                    benchmark.solve("solve file MM", custom, Solver.Engine.BIDIRECTIONAL,
+                            Heuristic.defaultFor(custom[0].dimension()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package sample;
+
+import java.util.Arrays;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс отыскивает кратчайшее решение двунаправленным алгоритмом MM (встреча посередине).
+ * \details Прямой поиск идёт от изначального board к цели, обратный - от цели к изначальному board; каждый раз
+ * раскрывается узел того направления, где наименьший приоритет pr = max(g + h, 2g) меньше. Для прямого поиска
+ * h - переданная эвристика, для обратного - манхэтенское расстояние до изначального board (обе допустимы).
+ * Приоритет 2g не даёт ни одному направлению уйти дальше середины оптимального пути (C* / 2). Это не значит,
+ * что раскрывается меньше состояний, чем однонаправленным A*: на 4x4 с манхэтенским числом MM раскрывает
+ * примерно столько же, на одних board меньше, на других больше.
+ *
+ * Оба направления пользуются одним хранилищем состояний: таблица StateTable даёт номер состояния в NodeArena,
+ * а для номера хранятся количество ходов и связь "родитель + ход" в каждом направлении. Когда состояние
+ * достигнуто обоими поисками, длина пути через него - кандидат U. Поиск заканчивается, когда U не больше
+ * наименьшего приоритета очередей или суммы наименьших g обеих очередей плюс один ход: более короткого пути
+ * уже нет. Решение собирается из прямой половины (от изначального board до точки встречи) и обращённой обратной.
+ */
+public class BidirectionalSolver {
+    private static final int FORWARD = 0;
+    private static final int BACKWARD = 1;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final Board initial;
+    private final Board board;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final NodeArena arena;
+    private final StateTable states;
+    private final IntBucketQueue[] open = {new IntBucketQueue(), new IntBucketQueue()};
+    private final int[] initialRow;
+    private final int[] initialCol;
+    private int[][] cost = new int[2][1024];
+    private int[][] estimates = new int[2][1024];
+    private int[][] links = new int[2][1024];
+    private int[][] depths = new int[2][64];
+    private final int[] minDepth = {UNREACHED, UNREACHED};
+    private int best = UNREACHED;
+    private int meeting = -1;
+    private long nodes = 0;
+    private long generated = 0;
+    private long duplicates = 0;
+    private int peakOpen = 0;
+
+    /**
+     * @param initial изначальный решаемый board (не изменяется)
+     * @param heuristic допустимая эвристика для прямого поиска
+     * @param budget ограничение поиска
+     */
+    public BidirectionalSolver(Board initial, Heuristic heuristic, SearchBudget budget) {
+        this.initial = initial;
+        this.board = new Board(initial);
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.arena = new NodeArena(this.board.stateLength());
+        this.states = new StateTable(initial.dimension());
+        int n = initial.dimension();
+        this.initialRow = new int[n * n];
+        this.initialCol = new int[n * n];
+        for (int i = 0; i < n * n; i++) {
+            this.initialRow[initial.tile(i)] = i / n;
+            this.initialCol[initial.tile(i)] = i % n;
+        }
+    }
+
+    /**
+     * \brief Данный метод решает board.
+     * \details Пока путь через точку встречи не найден (best == UNREACHED), условие остановки не проверяется:
+     * иначе пустые очереди (приоритет Integer.MAX_VALUE) выглядели бы как доказанный путь длины UNREACHED.
+     *
+     * @return ходы пустой клетки
+     * @throws SearchAbortedException если поиск отменён или исчерпал бюджет
+     * @throws IllegalStateException если board нерешаем (обе очереди опустели без встречи)
+     */
+    public int[] solve() {
+        if (this.initial.isGoal())
+            return new int[0];
+        this.addRoot(FORWARD, this.initial, this.heuristic.estimate(this.initial));
+        Board goal = goal(this.initial.dimension());
+        this.addRoot(BACKWARD, goal, this.backwardEstimate(goal));
+        while (true) {
+            int forward = this.open[FORWARD].minPriority();
+            int backward = this.open[BACKWARD].minPriority();
+            if (this.best != UNREACHED && (this.best <= Math.min(forward, backward)
+                    || this.minDepth[FORWARD] != UNREACHED && this.minDepth[BACKWARD] != UNREACHED
+                    && this.best <= this.minDepth[FORWARD] + this.minDepth[BACKWARD] + 1))
+                return this.path();
+            if (forward == Integer.MAX_VALUE && backward == Integer.MAX_VALUE)
+                throw new IllegalStateException("Board is not solvable");
+            int direction = forward < backward || forward == backward
+                    && this.open[FORWARD].size() <= this.open[BACKWARD].size() ? FORWARD : BACKWARD;
+            IntBucketQueue queue = this.open[direction];
+            int node = queue.delMin();
+            int moves = queue.lastEstimate();
+            this.removeDepth(direction, moves);
+            if (moves != this.cost[direction][node]) {
+                this.duplicates++;
+                continue;
+            }
+            if ((++this.nodes & (SearchBudget.CHECK_INTERVAL - 1)) == 0)
+                this.budget.check(this.nodes, this.open[FORWARD].size() + this.open[BACKWARD].size(),
+                        queue.lastPriority());
+            this.arena.load(node, this.board);
+            this.expand(direction, node, moves);
+            int size = this.open[FORWARD].size() + this.open[BACKWARD].size();
+            if (size > this.peakOpen)
+                this.peakOpen = size;
+        }
+    }
+
+    /**
+     * \brief Данный метод получает соседей узла сдвигом board на месте.
+     * \details Сосед кладётся в очередь направления, если в этом направлении до него найден более короткий путь
+     * и путь через него может быть короче U. Если сосед уже достигнут другим направлением, U уточняется.
+     * В очереди вместо оценки хранится количество ходов g (g <= pr), по нему устаревшие записи и отбрасываются.
+     *
+     * @param direction FORWARD или BACKWARD
+     * @param node раскрываемый узел
+     * @param moves количество ходов до него в этом направлении
+     */
+    private void expand(int direction, int node, int moves) {
+        int other = direction ^ 1;
+        int estimate = this.estimates[direction][node];
+        int from = this.board.blankIndex();
+        for (int move = Board.UP; move <= Board.RIGHT; move++) {
+            int to = this.board.target(move);
+            if (to < 0)
+                continue;
+            int tile = this.board.tile(to);
+            this.board.slide(to);
+            this.generated++;
+            int child = this.states.get(this.board);
+            if (child == StateTable.NOT_FOUND)
+                child = this.addState();
+            if (this.cost[direction][child] <= moves + 1) {
+                this.duplicates++;
+            } else {
+                int childEstimate = this.estimates[direction][child];
+                if (childEstimate < 0) {
+                    childEstimate = direction == FORWARD
+                            ? this.heuristic.update(this.board, estimate, tile, to, from)
+                            : estimate + this.distance(tile, from) - this.distance(tile, to);
+                    this.estimates[direction][child] = childEstimate;
+                }
+                this.cost[direction][child] = moves + 1;
+                this.links[direction][child] = (node << 2) | move;
+                if (this.cost[other][child] != UNREACHED && moves + 1 + this.cost[other][child] < this.best) {
+                    this.best = moves + 1 + this.cost[other][child];
+                    this.meeting = child;
+                }
+                if (moves + 1 + childEstimate < this.best)
+                    this.push(direction, child, moves + 1, childEstimate);
+            }
+            this.board.slide(from);
+        }
+    }
+
+    /**
+     * Данный метод добавляет корень направления direction.
+     *
+     * @param direction
+     * @param root изначальный board или цель
+     * @param estimate оценка корня
+     */
+    private void addRoot(int direction, Board root, int estimate) {
+        this.board.copyFrom(root);
+        int node = this.addState();
+        this.cost[direction][node] = 0;
+        this.estimates[direction][node] = estimate;
+        this.links[direction][node] = -1 << 2;
+        this.push(direction, node, 0, estimate);
+    }
+
+    /**
+     * \brief Данный метод кладёт узел в очередь направления с приоритетом max(g + h, 2g).
+     * \details Для условия остановки считается, сколько записей очереди имеют каждое g; устаревшие записи
+     * тоже учитываются, поэтому наименьшее g может быть только меньше настоящего, и условие остаётся верным.
+     *
+     * @param direction
+     * @param node
+     * @param moves g
+     * @param estimate h
+     */
+    private void push(int direction, int node, int moves, int estimate) {
+        this.open[direction].insert(node, Math.max(moves + estimate, 2 * moves), moves);
+        if (moves >= this.depths[direction].length)
+            this.depths[direction] = Arrays.copyOf(this.depths[direction], 2 * moves);
+        this.depths[direction][moves]++;
+        if (moves < this.minDepth[direction])
+            this.minDepth[direction] = moves;
+    }
+
+    /**
+     * Данный метод учитывает, что из очереди direction извлечена запись с g = moves.
+     *
+     * @param direction
+     * @param moves
+     */
+    private void removeDepth(int direction, int moves) {
+        int[] depths = this.depths[direction];
+        depths[moves]--;
+        int min = this.minDepth[direction];
+        while (min < depths.length && depths[min] == 0)
+            min++;
+        this.minDepth[direction] = min < depths.length ? min : UNREACHED;
+    }
+
+    /**
+     * \brief Данный метод добавляет в хранилище состояние this.board, ещё не достигнутое ни одним направлением.
+     * \details Для board больше 4x4 таблица хранит ссылки на board, поэтому в неё кладётся копия.
+     *
+     * @return номер состояния
+     */
+    private int addState() {
+        int node = this.arena.add(this.board, -1, 0);
+        if (node == this.cost[FORWARD].length) {
+            for (int direction = FORWARD; direction <= BACKWARD; direction++) {
+                this.cost[direction] = Arrays.copyOf(this.cost[direction], 2 * node);
+                this.estimates[direction] = Arrays.copyOf(this.estimates[direction], 2 * node);
+                this.links[direction] = Arrays.copyOf(this.links[direction], 2 * node);
+            }
+        }
+        for (int direction = FORWARD; direction <= BACKWARD; direction++) {
+            this.cost[direction][node] = UNREACHED;
+            this.estimates[direction][node] = -1;
+        }
+        this.states.put(this.board.isCompact() ? this.board : new Board(this.board), node);
+        return node;
+    }
+
+    /**
+     * \brief Данный метод собирает решение через точку встречи.
+     * \details Прямая половина восстанавливается по связям от точки встречи к изначальному board и разворачивается.
+     * В обратной половине связь хранит ход от родителя (ближе к цели) к узлу, поэтому к цели ведёт обратный ход.
+     *
+     * @return ходы пустой клетки
+     */
+    private int[] path() {
+        int[] path = new int[this.best];
+        int length = this.cost[FORWARD][this.meeting];
+        for (int node = this.meeting, i = length; i > 0; node = this.links[FORWARD][node] >> 2)
+            path[--i] = this.links[FORWARD][node] & 3;
+        for (int node = this.meeting, i = length; i < path.length; node = this.links[BACKWARD][node] >> 2)
+            path[i++] = (this.links[BACKWARD][node] & 3) ^ 1;
+        return path;
+    }
+
+    /**
+     * Данный метод вычисляет манхэтенское расстояние от board до изначального board (оценку обратного поиска).
+     *
+     * @param board
+     * @return сумма расстояний клеток
+     */
+    private int backwardEstimate(Board board) {
+        int cells = board.dimension() * board.dimension();
+        int sum = 0;
+        for (int i = 0; i < cells; i++)
+            if (board.tile(i) != 0)
+                sum += this.distance(board.tile(i), i);
+        return sum;
+    }
+
+    /**
+     * Данный метод возвращает расстояние клетки value в ячейке index до её ячейки в изначальном board.
+     *
+     * @param value
+     * @param index
+     * @return |drow| + |dcol|
+     */
+    private int distance(int value, int index) {
+        int n = this.initial.dimension();
+        return Math.abs(index / n - this.initialRow[value]) + Math.abs(index % n - this.initialCol[value]);
+    }
+
+    /**
+     * Данный метод строит решённый board размерности n.
+     *
+     * @param n
+     * @return цель
+     */
+    private static Board goal(int n) {
+        int[][] blocks = new int[n][n];
+        for (int i = 0; i < n * n - 1; i++)
+            blocks[i / n][i % n] = i + 1;
+        return new Board(blocks);
+    }
+
+    /**
+     * Данный метод возвращает количество раскрытых узлов в обоих направлениях.
+     *
+     * @return this.nodes
+     */
+    public long nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Данный метод возвращает количество сгенерированных соседей.
+     *
+     * @return this.generated
+     */
+    public long generated() {
+        return this.generated;
+    }
+
+    /**
+     * Данный метод возвращает количество отброшенных повторных и устаревших узлов.
+     *
+     * @return this.duplicates
+     */
+    public long duplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Данный метод возвращает наибольший суммарный размер двух очередей.
+     *
+     * @return this.peakOpen
+     */
+    public int peakOpen() {
+        return this.peakOpen;
+    }
+}
@@ -14,29 +14,64 @@ import edu.princeton.cs.algs4.StdRandom;
  *  \details Класс Board.java создаёт board, и находит соседей исходящего board
 */
 public class Board {
-    public int[][] board;
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+    /** Длина случайного блуждания, которым перемешивается board в конструкторе Board(int). */
+    public static final int RANDOM_STEPS = 100;
+
+    /**
+     * \brief Данный интерфейс получает соседей board от forEachNeighbor().
+     * \details Во время вызова board уже сдвинут в соседнее состояние; после возврата ход отменяется,
+     * поэтому board можно читать (и, например, запоминать копию), но нельзя оставлять изменённым.
+     */
+    public interface NeighborVisitor {
+        /**
+         * @param board board в соседнем состоянии
+         * @param direction ход пустой клетки
+         * @param tile сдвинутая клетка
+         * @param from ячейка клетки до хода (теперь там пустая клетка)
+         * @param to ячейка клетки после хода (там была пустая клетка)
+         */
+        void neighbor(Board board, int direction, int tile, int from, int to);
+    }
+
+    /** Наибольшая поддерживаемая размерность board. */
+    public static final int MAX_DIMENSION = 255;
+    private static final int[][] MOVE_TABLES = new int[MAX_DIMENSION + 1][];
+
     private int dimension;
+    private int[] moves;
+    private int[] positions;
+    private long packed;
+    private long[] words;
+    private int blank;
+    private int hash;
     private int manhattanNumber = -1;
     private int hammingNumber = -1;
+    private byte solvability = 0;
 
     /**
      * @param array входящий массив
      *
      * \brief Данный конструктор создаёт board из двумерного массива. Также в конструкторе используются две функции
      * hamming() и manhattan(), для дальнейшего определения приоритета данного board.
+     * @throws IllegalArgumentException если массив не квадратный или клетки - не перестановка чисел от 0 до N^2 - 1
      */
     public Board(int[][] array) {
-        this.dimension = array.length;
-        this.board = new int[this.dimension][this.dimension];
-        for(int i = 0; i < this.dimension; i++)
-        {
-            for (int j = 0; j < this.dimension; j++)
-            {
-                this.board[i][j] = array[i][j];
-            }
-        }
-        this.hammingNumber = this.hamming();
-        this.manhattanNumber = this.manhattan();
+        this(array.length, cells(array));
+    }
+
+    /**
+     * \brief Данный конструктор создаёт копию board, без повторного пересчёта эвристик.
+     *
+     * @param original
+     */
+    protected Board(Board original) {
+        this.dimension = original.dimension;
+        this.moves = original.moves;
+        this.copyFrom(original);
     }
 
     /**
@@ -44,38 +79,442 @@ public class Board {
      * @param size
      *
      * \brief Данный конструктор создаёт board,
-     * заполняет его цифрами от 1 до N^2-1, после чего перемешивает постановку чисел в board.
+     * заполняет его цифрами от 1 до N^2-1, после чего перемешивает постановку чисел в board
+     * случайным блужданием из RANDOM_STEPS ходов (см. BoardGenerator; для воспроизводимых
+     * или равномерно перемешанных board используйте BoardGenerator с зерном).
      */
     public Board(int size) {
-        this.dimension = size;
-        this.board = new int[size][size];
-        int tempValue = 1;
-        for (int i = 0; i < this.dimension; i++){
-            for (int j = 0; j < this.dimension; j++){
-                if (tempValue < size * size)
-                    this.board[i][j] = tempValue;
-                tempValue++;
+        this(size, new BoardGenerator().walkCells(size, RANDOM_STEPS));
+    }
+
+    /**
+     * \brief Данный конструктор создаёт board из массива клеток, записанных по строкам.
+     *
+     * @param dimension
+     * @param cells N^2 значений, 0 - пустая клетка
+     * @throws IllegalArgumentException если клетки - не перестановка чисел от 0 до N^2 - 1
+     */
+    Board(int dimension, int[] cells) {
+        checkPermutation(dimension, cells);
+        this.dimension = dimension;
+        this.allocate();
+        for (int i = 0; i < cells.length; i++)
+            this.setTile(i, cells[i]);
+        this.rehash();
+        this.hammingNumber = this.hamming();
+        this.manhattanNumber = this.manhattan();
+    }
+
+    /**
+     * \brief Данный метод записывает клетки квадратного массива по строкам.
+     *
+     * @param array
+     * @return N^2 значений
+     * @throws IllegalArgumentException если массив не квадратный
+     */
+    private static int[] cells(int[][] array) {
+        int n = array.length;
+        int[] cells = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            if (array[i] == null || array[i].length != n)
+                throw new IllegalArgumentException("Board must be " + n + "x" + n + ", row " + i + " differs");
+            System.arraycopy(array[i], 0, cells, i * n, n);
+        }
+        return cells;
+    }
+
+    /**
+     * \brief Данный метод проверяет, что клетки - перестановка чисел от 0 до N^2 - 1.
+     * \details Иначе упакованная запись испортила бы соседние клетки (значение не помещается в свои биты),
+     * а board с повторами прошёл бы проверку решаемости, и поиск шёл бы до исчерпания памяти.
+     *
+     * @param dimension
+     * @param cells
+     * @throws IllegalArgumentException если это не так
+     */
+    private static void checkPermutation(int dimension, int[] cells) {
+        if (dimension < 1 || dimension > MAX_DIMENSION)
+            throw new IllegalArgumentException("Unsupported dimension " + dimension);
+        int n = dimension * dimension;
+        if (cells.length != n)
+            throw new IllegalArgumentException("Expected " + n + " cells, got " + cells.length);
+        boolean[] seen = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int value = cells[i];
+            if (value < 0 || value >= n)
+                throw new IllegalArgumentException("Tile " + value + " is out of range 0.." + (n - 1));
+            if (seen[value])
+                throw new IllegalArgumentException("Tile " + value + " occurs twice");
+            seen[value] = true;
+        }
+    }
+
+    /**
+     * \brief Данный метод выделяет упакованное хранилище под board.
+     * \details Для board до 4x4 все клетки (по 4 бита) помещаются в одно число long,
+     * для больших board клетки упаковываются по 8 или 16 бит в массив long[].
+     */
+    private void allocate() {
+        int cells = this.dimension * this.dimension;
+        this.moves = moveTable(this.dimension);
+        if (this.dimension > 4) {
+            int perWord = 64 / bitsPerTile(this.dimension);
+            this.words = new long[(cells + perWord - 1) / perWord];
+        }
+        this.blank = cells - 1;
+    }
+
+    /**
+     * \brief Данный метод возвращает таблицу ходов для board размерности dimension.
+     * \details Элемент (index << 2) | direction - ячейка, в которую переходит пустая клетка из ячейки index
+     * при ходе direction, или -1, если ход выводит за край. Таблица строится один раз на размерность
+     * и общая для всех board, поэтому поиск хода не требует деления на dimension.
+     *
+     * @param dimension
+     * @return таблица из 4 * N^2 элементов (не изменять)
+     */
+    static synchronized int[] moveTable(int dimension) {
+        int[] table = MOVE_TABLES[dimension];
+        if (table == null) {
+            int cells = dimension * dimension;
+            table = new int[4 * cells];
+            for (int index = 0; index < cells; index++) {
+                int row = index / dimension;
+                int col = index % dimension;
+                table[(index << 2) | UP] = row > 0 ? index - dimension : -1;
+                table[(index << 2) | DOWN] = row < dimension - 1 ? index + dimension : -1;
+                table[(index << 2) | LEFT] = col > 0 ? index - 1 : -1;
+                table[(index << 2) | RIGHT] = col < dimension - 1 ? index + 1 : -1;
             }
+            MOVE_TABLES[dimension] = table;
         }
-        this.makeItRandom();
+        return table;
+    }
+
+    /**
+     * Данный метод возвращает число бит, отводимых под одну клетку.
+     *
+     * @param dimension
+     * @return 4, 8 или 16
+     */
+    private static int bitsPerTile(int dimension) {
+        if (dimension <= 4)
+            return 4;
+        if (dimension <= 16)
+            return 8;
+        return 16;
+    }
+
+    /**
+     * \brief Данный метод возвращает значение клетки по её индексу (row * dimension + col).
+     *
+     * @param index
+     * @return значение клетки, 0 - пустая клетка
+     */
+    public int tile(int index) {
+        if (this.words == null)
+            return (int) (this.packed >>> (index << 2)) & 0xF;
+        int bits = bitsPerTile(this.dimension);
+        int perWord = 64 / bits;
+        return (int) (this.words[index / perWord] >>> ((index % perWord) * bits)) & ((1 << bits) - 1);
+    }
+
+    /**
+     * Данный метод возвращает значение клетки по строке и столбцу.
+     *
+     * @param row
+     * @param col
+     * @return значение клетки
+     */
+    public int tileAt(int row, int col) {
+        return this.tile(row * this.dimension + col);
+    }
+
+    /**
+     * \brief Данный метод записывает значение в клетку упакованного board.
+     * Хэш при этом не пересчитывается.
+     *
+     * @param index
+     * @param value
+     */
+    private void setTile(int index, int value) {
+        if (value == 0)
+            this.blank = index;
+        if (this.words == null) {
+            int shift = index << 2;
+            this.packed = (this.packed & ~(0xFL << shift)) | ((long) value << shift);
+            return;
+        }
+        int bits = bitsPerTile(this.dimension);
+        int perWord = 64 / bits;
+        int shift = (index % perWord) * bits;
+        long mask = ((1L << bits) - 1) << shift;
+        int w = index / perWord;
+        this.words[w] = (this.words[w] & ~mask) | ((long) value << shift);
+    }
+
+    /**
+     * \brief Данный метод меняет местами пустую клетку с клеткой to.
+     * \details При сдвиге меняется положение ровно одной клетки, поэтому манхэтеновское число
+     * и число хэмминга обновляются на разницу для этой клетки, без обхода всего board.
+     * Board изменяется на месте, поэтому метод доступен только поискам внутри пакета.
+     * Если положения клеток (positions()) уже запрошены, они тоже обновляются за O(1).
+     *
+     * @param to
+     */
+    void slide(int to) {
+        int from = this.blank;
+        int value = this.tile(to);
+        this.hash += zobrist(from, value) - zobrist(to, value);
+        this.manhattanNumber += this.distance(value, from) - this.distance(value, to);
+        this.hammingNumber += (from == value - 1 ? 0 : 1) - (to == value - 1 ? 0 : 1);
+        this.setTile(from, value);
+        this.setTile(to, 0);
+        if (this.positions != null) {
+            this.positions[value] = from;
+            this.positions[0] = to;
+        }
+    }
+
+    /**
+     * \brief Данный метод делает ход пустой клетки direction на месте.
+     * \details Хэш, манхэтеновское число и число хэмминга обновляются за O(1), новых объектов не создаётся.
+     * Board, который хранится ключом в таблице (StateTable, HashMap), изменять нельзя.
+     *
+     * @param direction UP, DOWN, LEFT или RIGHT
+     * @return true, если ход сделан, false - если он выводит за край (board не изменяется)
+     */
+    public boolean apply(int direction) {
+        int to = this.target(direction);
+        if (to < 0)
+            return false;
+        this.slide(to);
+        return true;
+    }
+
+    /**
+     * \brief Данный метод отменяет ход direction, сделанный методом apply().
+     *
+     * @param direction
+     * @return true, если ход отменён
+     */
+    public boolean undo(int direction) {
+        return this.apply(direction ^ 1);
+    }
+
+    /**
+     * \brief Данный метод записывает в into возможные ходы пустой клетки.
+     *
+     * @param into массив не меньше чем из 4 элементов
+     * @return количество ходов (2, 3 или 4)
+     */
+    public int legalMoves(int[] into) {
+        int count = 0;
+        int base = this.blank << 2;
+        for (int direction = UP; direction <= RIGHT; direction++)
+            if (this.moves[base | direction] >= 0)
+                into[count++] = direction;
+        return count;
+    }
+
+    /**
+     * \brief Данный метод перебирает соседей board без создания объектов.
+     * \details Для каждого хода (кроме обратного previous) board сдвигается на месте, передаётся visitor
+     * и возвращается обратно.
+     *
+     * @param previous предыдущий ход, обратный ему не делается; -1 - перебирать все ходы
+     * @param visitor
+     */
+    public void forEachNeighbor(int previous, NeighborVisitor visitor) {
+        int from = this.blank;
+        int base = from << 2;
+        for (int direction = UP; direction <= RIGHT; direction++) {
+            int to = this.moves[base | direction];
+            if (to < 0 || direction == (previous ^ 1))
+                continue;
+            int tile = this.tile(to);
+            this.slide(to);
+            visitor.neighbor(this, direction, tile, to, from);
+            this.slide(from);
+        }
+    }
+
+    /**
+     * Данный метод возвращает манхэтеновское расстояние от клетки index до целевого положения значения value.
+     *
+     * @param value
+     * @param index
+     * @return расстояние
+     */
+    private int distance(int value, int index) {
+        int goal = value - 1;
+        return Math.abs(goal / this.dimension - index / this.dimension)
+                + Math.abs(goal % this.dimension - index % this.dimension);
+    }
+
+    /**
+     * \brief Данный метод пересчитывает хэш board.
+     * \details Хэш - сумма значений zobrist(index, tile) по всем непустым клеткам,
+     * поэтому при сдвиге одной клетки он обновляется за O(1).
+     */
+    private void rehash() {
+        int result = 0;
+        for (int i = 0; i < this.dimension * this.dimension; i++)
+            result += zobrist(i, this.tile(i));
+        this.hash = result;
+    }
+
+    /**
+     * Данный метод перемешивает биты пары (клетка, значение) для хэша.
+     *
+     * @param index
+     * @param value
+     * @return слагаемое хэша
+     */
+    private static int zobrist(int index, int value) {
+        if (value == 0)
+            return 0;
+        int h = index * 0x9E3779B9 + value * 0x85EBCA6B;
+        h ^= h >>> 16;
+        h *= 0x7FEB352D;
+        h ^= h >>> 15;
+        return h;
+    }
+
+    /**
+     * \brief Данный метод копирует состояние другого board той же размерности.
+     *
+     * @param other
+     */
+    protected void copyFrom(Board other) {
+        this.packed = other.packed;
+        this.words = other.words == null ? null : other.words.clone();
+        this.blank = other.blank;
+        this.hash = other.hash;
+        this.manhattanNumber = other.manhattanNumber;
+        this.hammingNumber = other.hammingNumber;
+        this.solvability = other.solvability;
+        this.positions = null;
+    }
+
+    /**
+     * Данный метод возвращает количество чисел long, которыми записывается состояние board.
+     *
+     * @return 1 для board до 4x4, иначе words.length
+     */
+    int stateLength() {
+        return this.words == null ? 1 : this.words.length;
+    }
+
+    /**
+     * \brief Данный метод записывает упакованные клетки board в массив to начиная с offset.
+     *
+     * @param to
+     * @param offset
+     */
+    void writeState(long[] to, int offset) {
+        if (this.words == null)
+            to[offset] = this.packed;
+        else
+            System.arraycopy(this.words, 0, to, offset, this.words.length);
     }
 
     /**
-     * Данная функция перемешивает постановку чисел в board.
+     * \brief Данный метод загружает в board упакованные клетки, записанные writeState().
+     * \details Пустая клетка, хэш, число хэмминга, манхэтеновское число и (если запрошены) положения клеток
+     * пересчитываются за один проход.
+     * Сохранённая решаемость не сбрасывается, поэтому загружать можно только состояния,
+     * достижимые ходами из этого board.
      *
+     * @param from
+     * @param offset
      */
-    private void makeItRandom() {
-        for (int i = 0; i < 100; i++) {
-            Board temp[];
-            temp = new Board[4];
-            int j = 0;
-            for(Board n : this.neighbors()) {
-                temp[j] = n;
-                j++;
+    void readState(long[] from, int offset) {
+        if (this.words == null)
+            this.packed = from[offset];
+        else
+            System.arraycopy(from, offset, this.words, 0, this.words.length);
+        int cells = this.dimension * this.dimension;
+        int hash = 0;
+        int hamming = 0;
+        int manhattan = 0;
+        for (int i = 0; i < cells; i++) {
+            int value = this.tile(i);
+            if (this.positions != null)
+                this.positions[value] = i;
+            if (value == 0) {
+                this.blank = i;
+                continue;
             }
-            int random = ((int) (Math.random() * 10)) % j;
-            this.board = temp[random].board;
+            hash += zobrist(i, value);
+            if (value != i + 1)
+                hamming++;
+            manhattan += this.distance(value, i);
         }
+        this.hash = hash;
+        this.hammingNumber = hamming;
+        this.manhattanNumber = manhattan;
+    }
+
+    /**
+     * \brief Данный метод возвращает положения клеток: индекс - значение клетки, элемент - её ячейка.
+     * \details Массив строится при первом запросе и дальше поддерживается методами slide() и readState(),
+     * поэтому эвристикам по положениям (базы шаблонов) не нужно обходить board на каждом ходе.
+     * Копии board массив не наследуют - он строится заново, только если нужен. Изменять массив нельзя,
+     * кроме временной подмены с восстановлением в том же вызове.
+     *
+     * @return this.positions
+     */
+    int[] positions() {
+        if (this.positions == null) {
+            int cells = this.dimension * this.dimension;
+            int[] positions = new int[cells];
+            for (int i = 0; i < cells; i++)
+                positions[this.tile(i)] = i;
+            this.positions = positions;
+        }
+        return this.positions;
+    }
+
+    /**
+     * Данный метод возвращает индекс пустой клетки.
+     *
+     * @return this.blank
+     */
+    public int blankIndex() {
+        return this.blank;
+    }
+
+    /**
+     * \brief Данный метод проверяет, упакован ли board в одно число long (board до 4x4).
+     *
+     * @return true or false
+     */
+    public boolean isCompact() {
+        return this.words == null;
+    }
+
+    /**
+     * \brief Данный метод возвращает упакованное представление board до 4x4.
+     * \details Клетка с индексом i занимает биты [4i, 4i + 4).
+     *
+     * @return this.packed
+     */
+    public long packed() {
+        return this.packed;
+    }
+
+    /**
+     * Данный метод возвращает board в виде двумерного массива.
+     *
+     * @return array
+     */
+    public int[][] toArray() {
+        int[][] array = new int[this.dimension][this.dimension];
+        for (int i = 0; i < this.dimension; i++)
+            for (int j = 0; j < this.dimension; j++)
+                array[i][j] = this.tileAt(i, j);
+        return array;
     }
 
     /**
@@ -116,7 +555,7 @@ public class Board {
         {
             for(int j = 0; j < this.dimension; j++)
             {
-                if(this.board[i][j] != expectedValue)
+                if(this.tileAt(i, j) != expectedValue)
                     result++;
                 expectedValue++;
             }
@@ -141,7 +580,7 @@ public class Board {
         int result = 0;
         for (int i = 0; i < this.dimension; i++) {
             for (int j = 0; j < this.dimension; j++) {
-                int currentVal = this.board[i][j];
+                int currentVal = this.tileAt(i, j);
                 if (currentVal == 0)
                     continue;
                 int goalRow = (currentVal - 1) / this.dimension;
@@ -155,10 +594,45 @@ public class Board {
 
     /**
      * Данный метод, возвращает значение в зависимости от того закончена игра или нет.
+     * Используется сохранённое число хэмминга, поэтому проверка выполняется за O(1).
      * @return true or false
      */
     public boolean isGoal(){
-        return this.hamming() == 0;
+        return this.hammingNumber == 0;
+    }
+
+    /**
+     * \brief Данный метод проверяет, можно ли собрать board.
+     * \details Считается чётность количества инверсий (пар клеток, стоящих в обратном порядке);
+     * для board чётной размерности к нему прибавляется номер строки пустой клетки (считая с 1).
+     * Board решаем, если сумма чётна. Инверсии считаются деревом Фенвика за O(N^2 log N);
+     * ход не меняет решаемость, поэтому результат запоминается и переходит к соседям и копиям board.
+     *
+     * @return true or false
+     */
+    public boolean isSolvable() {
+        if (this.solvability == 0) {
+            int cells = this.dimension * this.dimension;
+            int[] tree = new int[cells];
+            long sum = 0;
+            int seen = 0;
+            for (int index = 0; index < cells; index++) {
+                int value = this.tile(index);
+                if (value == 0)
+                    continue;
+                int notGreater = 0;
+                for (int i = value; i > 0; i -= i & -i)
+                    notGreater += tree[i];
+                sum += seen - notGreater;
+                for (int i = value; i < cells; i += i & -i)
+                    tree[i]++;
+                seen++;
+            }
+            if (this.dimension % 2 == 0)
+                sum += this.blank / this.dimension + 1;
+            this.solvability = (byte) (sum % 2 == 0 ? 1 : -1);
+        }
+        return this.solvability > 0;
     }
 
     /**
@@ -195,22 +669,6 @@ public class Board {
 //        return twin;
 //    }
 
-    /**
-     * Данный метод создан для того чтобы копировать массив.
-     *
-     * @param original
-     *
-     * @return copy
-     */
-    private int[][] copyArray(int[][] original) {
-        int len = original.length;
-        int[][] copy = new int[len][len];
-        for (int i = 0; i < len; i++)
-            for (int j = 0; j < len; j++)
-                copy[i][j] = original[i][j];
-        return copy;
-    }
-
     /**
      * Данный метод, проверяет равен один board другому board или нет
      *
@@ -227,13 +685,21 @@ public class Board {
         if (this.getClass() != y.getClass())
             return false;
         Board that = (Board) y;
-        if (this.dimension != that.dimension)
+        if (this.dimension != that.dimension || this.hash != that.hash)
             return false;
-        for(int i = 0; i < this.dimension; i++) {
-            if(!Arrays.equals(this.board[i], that.board[i]))
-                return false;
-        }
-        return true;
+        if (this.words == null)
+            return this.packed == that.packed;
+        return Arrays.equals(this.words, that.words);
+    }
+
+    /**
+     * Данный метод возвращает заранее посчитанный хэш board.
+     *
+     * @return this.hash
+     */
+    @Override
+    public int hashCode() {
+        return this.hash;
     }
 
     /**
@@ -242,51 +708,79 @@ public class Board {
      * \details создаёт очередь и добавляет в очередь соседей – это board,
      * который отличается от данного(входного board) состояния,
      * если бы мы выполнили ход пустой ячейки во все возможные стороны.
+     * Метод оставлен для совместимости: каждый сосед - новый board; алгоритмы поиска перебирают соседей
+     * без создания объектов методами forEachNeighbor() или apply()/undo().
      *
      * @return neighborQ - очередь полученных соседей;
      *
      */
     public Iterable<Board> neighbors() {
         Queue<Board> neighborQ = new Queue<Board>();
-        int zRow = 0;  // row that contains zero
-        int zCol = 0;  // col that contains zero
-        foundZero:
-        for (int row = 0; row < this.dimension; row++) {
-            for (int col = 0; col < this.dimension; col++) {
-                if(this.board[row][col] == 0) {
-                    zRow = row;
-                    zCol = col;
-                    break foundZero;
-                }
-            }
-        }
-        if (zRow > 0) {
-            Board n1 = new Board(copyArray(this.board));
-            n1.board[zRow][zCol] = n1.board[zRow - 1][zCol];
-            n1.board[zRow - 1][zCol] = 0;
-            neighborQ.enqueue(n1);
-        }
-        if (zRow < this.dimension - 1) {
-            Board n2 = new Board(copyArray(this.board));
-            n2.board[zRow][zCol] = n2.board[zRow + 1][zCol];
-            n2.board[zRow + 1][zCol] = 0;
-            neighborQ.enqueue(n2);
-        }
-        if (zCol > 0) {
-            Board n3 = new Board(copyArray(this.board));
-            n3.board[zRow][zCol] = n3.board[zRow][zCol - 1];
-            n3.board[zRow][zCol - 1] = 0;
-            neighborQ.enqueue(n3);
-        }
-        if (zCol < this.dimension - 1) {
-            Board n4 = new Board(copyArray(this.board));
-            n4.board[zRow][zCol] = n4.board[zRow][zCol + 1];
-            n4.board[zRow][zCol + 1] = 0;
-            neighborQ.enqueue(n4);
-        }
+        int base = this.blank << 2;
+        for (int direction = UP; direction <= RIGHT; direction++)
+            if (this.moves[base | direction] >= 0)
+                neighborQ.enqueue(this.slidTo(this.moves[base | direction]));
         return neighborQ;
     }
 
+    /**
+     * \brief Данный метод возвращает индекс клетки, в которую переместится пустая клетка при ходе direction.
+     * \details Направления UP, DOWN, LEFT, RIGHT задают движение пустой клетки,
+     * противоположное направление получается как direction ^ 1. Ячейка берётся из таблицы ходов moveTable().
+     *
+     * @param direction
+     * @return индекс клетки или -1, если ход выводит за пределы board
+     */
+    public int target(int direction) {
+        if ((direction & ~3) != 0)
+            return -1;
+        return this.moves[(this.blank << 2) | direction];
+    }
+
+    /**
+     * \brief Данный метод находит ход, которым соседний board next получается из board previous.
+     *
+     * @param previous
+     * @param next
+     * @return Board.UP, Board.DOWN, Board.LEFT или Board.RIGHT
+     */
+    public static int direction(Board previous, Board next) {
+        int from = previous.blank;
+        int to = next.blank;
+        if (to == from - previous.dimension)
+            return UP;
+        if (to == from + previous.dimension)
+            return DOWN;
+        if (to == from - 1)
+            return LEFT;
+        return RIGHT;
+    }
+
+    /**
+     * Данный метод создаёт соседний board, полученный ходом пустой клетки в направлении direction.
+     *
+     * @param direction
+     * @return neighbor или null, если ход невозможен
+     */
+    public Board neighbor(int direction) {
+        int to = this.target(direction);
+        if (to < 0)
+            return null;
+        return this.slidTo(to);
+    }
+
+    /**
+     * \brief Данный метод создаёт соседний board, в котором пустая клетка перемещена в клетку to.
+     *
+     * @param to
+     * @return neighbor
+     */
+    private Board slidTo(int to) {
+        Board neighbor = new Board(this);
+        neighbor.slide(to);
+        return neighbor;
+    }
+
     /**
      * Данный метод преобразует board  в строковую форму представления с определнный форматом.
      *
@@ -298,7 +792,7 @@ public class Board {
         s.append(this.dimension + "\n");
         for (int i = 0; i < this.dimension; i++) {
             for (int j = 0; j < this.dimension; j++) {
-                s.append(String.format("%2d ", this.board[i][j]));
+                s.append(String.format("%2d ", this.tileAt(i, j)));
             }
             s.append("\n");
         }
@@ -0,0 +1,269 @@
+package sample;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс генерирует случайные решаемые головоломки с воспроизводимым зерном.
+ * \details Два режима:
+ * - случайное блуждание заданной длины от цели: пустая клетка двигается на месте в массиве клеток,
+ *   не возвращаясь сразу назад, поэтому оптимальное решение не длиннее steps;
+ * - равномерная выборка: перестановка Фишера-Йетса всех N^2 клеток, после чего у нерешаемой
+ *   перестановки меняются местами две непустые клетки. Такая замена - взаимно однозначное отображение
+ *   нерешаемых перестановок на решаемые при том же положении пустой клетки, поэтому каждая решаемая
+ *   головоломка получается с одинаковой вероятностью.
+ *
+ * Решаемость проверяется без подсчёта инверсий: перестановка клеток решаема, если её чётность
+ * (N^2 минус количество циклов) совпадает с чётностью манхэтеновского расстояния пустой клетки до её места.
+ * Генератор работает в одном массиве клеток и при массовой записи в файл (write) не создаёт объектов board.
+ * Один генератор нельзя использовать из нескольких потоков одновременно.
+ */
+public class BoardGenerator {
+    private final SplittableRandom random;
+    private int[] cells = new int[0];
+    private boolean[] visited = new boolean[0];
+    private char[] line = new char[0];
+
+    /**
+     * Данный конструктор создаёт генератор со случайным зерном.
+     */
+    public BoardGenerator() {
+        this.random = new SplittableRandom();
+    }
+
+    /**
+     * @param seed зерно: одинаковое зерно даёт одинаковую последовательность головоломок
+     */
+    public BoardGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * \brief Данный метод создаёт board случайным блужданием длины steps от цели.
+     *
+     * @param dimension
+     * @param steps
+     * @return board
+     */
+    public Board walk(int dimension, int steps) {
+        return new Board(dimension, this.walkCells(dimension, steps));
+    }
+
+    /**
+     * \brief Данный метод создаёт равномерно случайный решаемый board.
+     *
+     * @param dimension
+     * @return board
+     */
+    public Board uniform(int dimension) {
+        return new Board(dimension, this.uniformCells(dimension));
+    }
+
+    /**
+     * \brief Данный метод создаёт board: при steps > 0 - блужданием, иначе равномерно.
+     *
+     * @param dimension
+     * @param steps
+     * @return board
+     */
+    public Board next(int dimension, int steps) {
+        return steps > 0 ? this.walk(dimension, steps) : this.uniform(dimension);
+    }
+
+    /**
+     * \brief Данный метод заполняет внутренний массив клеток блужданием от цели.
+     * \details Направления те же, что у Board (UP, DOWN, LEFT, RIGHT - ход пустой клетки),
+     * ход, обратный предыдущему, и ход за край отбрасываются без траты шага. Ячейка хода берётся
+     * из таблицы Board.moveTable().
+     *
+     * @param dimension
+     * @param steps
+     * @return массив клеток по строкам (0 - пустая клетка), перезаписывается следующим вызовом
+     */
+    int[] walkCells(int dimension, int steps) {
+        int n = dimension * dimension;
+        int[] cells = this.cells(n);
+        for (int i = 0; i < n - 1; i++)
+            cells[i] = i + 1;
+        cells[n - 1] = 0;
+        int blank = n - 1;
+        int last = -1;
+        int[] moves = Board.moveTable(dimension);
+        for (int s = 0; s < steps; ) {
+            int direction = this.random.nextInt(4);
+            if (direction == (last ^ 1))
+                continue;
+            int to = moves[(blank << 2) | direction];
+            if (to < 0)
+                continue;
+            cells[blank] = cells[to];
+            cells[to] = 0;
+            blank = to;
+            last = direction;
+            s++;
+        }
+        return cells;
+    }
+
+    /**
+     * \brief Данный метод заполняет внутренний массив клеток равномерно случайной решаемой перестановкой.
+     *
+     * @param dimension
+     * @return массив клеток по строкам (0 - пустая клетка), перезаписывается следующим вызовом
+     */
+    int[] uniformCells(int dimension) {
+        int n = dimension * dimension;
+        int[] cells = this.cells(n);
+        for (int i = 0; i < n; i++)
+            cells[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = this.random.nextInt(i + 1);
+            int t = cells[i];
+            cells[i] = cells[j];
+            cells[j] = t;
+        }
+        if (!this.solvable(cells, dimension)) {
+            int a = cells[0] != 0 ? 0 : 2;
+            int b = cells[1] != 0 ? 1 : 2;
+            int t = cells[a];
+            cells[a] = cells[b];
+            cells[b] = t;
+        }
+        return cells;
+    }
+
+    /**
+     * \brief Данный метод проверяет решаемость перестановки за O(N^2) по чётности циклов.
+     * \details Клетка со значением v > 0 должна стоять на месте v - 1, пустая - на месте N^2 - 1.
+     * Каждый ход - транспозиция, меняющая и чётность перестановки, и чётность расстояния пустой клетки до её места,
+     * а у цели обе чётности нулевые.
+     *
+     * @param cells
+     * @param dimension
+     * @return true, если перестановка решаема
+     */
+    boolean solvable(int[] cells, int dimension) {
+        int n = dimension * dimension;
+        boolean[] visited = this.visited(n);
+        int cycles = 0;
+        int blank = 0;
+        for (int i = 0; i < n; i++) {
+            if (cells[i] == 0)
+                blank = i;
+            if (visited[i])
+                continue;
+            cycles++;
+            for (int j = i; !visited[j]; j = cells[j] == 0 ? n - 1 : cells[j] - 1)
+                visited[j] = true;
+        }
+        int distance = (dimension - 1 - blank / dimension) + (dimension - 1 - blank % dimension);
+        return (n - cycles) % 2 == distance % 2;
+    }
+
+    /**
+     * \brief Данный метод записывает count головоломок в формате BatchSolver: одна головоломка - одна строка из N^2 чисел.
+     * \details Первой строкой пишется комментарий с параметрами генерации. Числа переводятся в символы
+     * во внутреннем буфере строки, поэтому запись миллионов головоломок не создаёт мусора.
+     *
+     * @param out
+     * @param dimension
+     * @param count
+     * @param steps длина блуждания, 0 - равномерная выборка
+     * @throws IOException
+     */
+    public void write(Writer out, int dimension, long count, int steps) throws IOException {
+        out.write("# dimension=" + dimension + " count=" + count
+                + (steps > 0 ? " walk=" + steps : " uniform") + "\n");
+        int n = dimension * dimension;
+        int digits = Integer.toString(n - 1).length();
+        if (this.line.length < n * (digits + 1))
+            this.line = new char[n * (digits + 1)];
+        char[] line = this.line;
+        for (long k = 0; k < count; k++) {
+            int[] cells = steps > 0 ? this.walkCells(dimension, steps) : this.uniformCells(dimension);
+            int length = 0;
+            for (int i = 0; i < n; i++) {
+                if (i > 0)
+                    line[length++] = ' ';
+                int value = cells[i];
+                int end = length + (value == 0 ? 1 : (int) Math.log10(value) + 1);
+                for (int j = end - 1; j >= length; j--, value /= 10)
+                    line[j] = (char) ('0' + value % 10);
+                length = end;
+            }
+            line[length++] = '\n';
+            out.write(line, 0, length);
+        }
+    }
+
+    /**
+     * Данный метод возвращает внутренний массив клеток размера n.
+     *
+     * @param n
+     * @return this.cells
+     */
+    private int[] cells(int n) {
+        if (this.cells.length != n)
+            this.cells = new int[n];
+        return this.cells;
+    }
+
+    /**
+     * Данный метод возвращает очищенный массив отметок размера n.
+     *
+     * @param n
+     * @return this.visited
+     */
+    private boolean[] visited(int n) {
+        if (this.visited.length != n)
+            this.visited = new boolean[n];
+        else
+            Arrays.fill(this.visited, false);
+        return this.visited;
+    }
+
+    /**
+     * \brief Данный метод пишет головоломки в файл или на стандартный вывод.
+     * \details Ключи: -dim=N (4), -count=K (1000), -seed=S (случайное), -walk=L (длина блуждания,
+     * без ключа - равномерная выборка). Необязательный аргумент - имя выходного файла.
+     * Пример: java sample.BoardGenerator -dim=4 -count=1000000 -seed=1 instances.txt
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int dimension = 4;
+        long count = 1000;
+        int steps = 0;
+        Long seed = null;
+        String output = null;
+        for (String arg : args) {
+            if (arg.startsWith("-dim="))
+                dimension = Integer.parseInt(arg.substring("-dim=".length()));
+            else if (arg.startsWith("-count="))
+                count = Long.parseLong(arg.substring("-count=".length()));
+            else if (arg.startsWith("-seed="))
+                seed = Long.valueOf(arg.substring("-seed=".length()));
+            else if (arg.startsWith("-walk="))
+                steps = Integer.parseInt(arg.substring("-walk=".length()));
+            else
+                output = arg;
+        }
+        BoardGenerator generator = seed == null ? new BoardGenerator() : new BoardGenerator(seed);
+        Writer out = new BufferedWriter(output == null ? new OutputStreamWriter(System.out) : new FileWriter(output),
+                1 << 16);
+        try {
+            generator.write(out, dimension, count, steps);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -1,56 +1,59 @@
 package sample;
 
 
+import javafx.animation.AnimationTimer;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.canvas.Canvas;
-import java.util.Vector;
 
 /**
  * \brief Данный класс отвечает за обработку клавиш в интерфейсе и дальнейщей отрисовке с помощью метода drawField()
  *  Интерфейс содержит в себе два варианта: самогенерирующаяся рандомная матрица для дальнейщего запуска её решения, или же
  *  вводится самостоятельно двумерный массив, и после чего запускается решение.
+ *  Решение ищется в фоновом потоке (javafx.concurrent.Task), поэтому интерфейс не замирает: в метке text
+ *  показывается ход поиска, а клавиша "Cancel" прерывает его. Поиск ограничен по времени и по количеству
+ *  раскрытых узлов (свойства solver.timeLimit в миллисекундах и solver.nodeLimit, 0 - без ограничения).
+ *  Найденное решение проигрывается анимацией: клетка плавно сдвигается за solver.playbackMillis миллисекунд
+ *  на ход, а на canvas перерисовываются только две клетки, затронутые ходом.
  */
 public class Controller {
 
+    private static final long TIME_LIMIT = Long.getLong("solver.timeLimit", 60000);
+    private static final long NODE_LIMIT = Long.getLong("solver.nodeLimit", 1000000);
+    private static final long PLAYBACK_MILLIS = Long.getLong("solver.playbackMillis", 300);
+
+    private final Solver.Engine engine = Solver.Engine.fromName(System.getProperty("solver.engine"));
     private Field currentField;
     private Solver solver;
-    private Vector<Board> solution;
-    private int currentStatement;
+    private Solution.Cursor cursor;
+    private Task<Solver> task;
+    private AnimationTimer playback;
 
     @FXML public Canvas mainCan;
     @FXML public TextField dimension;
     @FXML public TextArea matrix;
     @FXML public Label text;
+    @FXML public Button cancel;
 
     /**
      * \brief Данный метод отвечает за обработку клафиши в интерфейсе, которая по сути приводит весь алгоритм решения в действие
      * Всё отрисовывается на canvas.
      */
     public void doIT() {
-        currentStatement = 0;
-        GraphicsContext gc = mainCan.getGraphicsContext2D();
-        gc.clearRect(0, 0, mainCan.getWidth(), mainCan.getHeight());
         String temp = dimension.getText();
         if (temp.length() != 0) {
             int n = Integer.parseInt(temp);
             if (2 <= n && n <= 20) {
                 currentField = new Field(n);
-                solver = new Solver(currentField);
-                if (solver.isSolvable()){
-                    text.setText("number of moves: " + solver.moves());
-                } else {
-                    text.setText("NO SOLUTION");
-                }
-                solution = new Vector(0);
-                for(Board board : solver.solution()) {
-                    solution.add(board);
-                }
-                int pxlSize = 300;
-                currentField.drawField(pxlSize, mainCan, ((int) mainCan.getWidth() - pxlSize) / 2, ((int) mainCan.getHeight() - pxlSize) / 2, gc);
+                draw();
+                solve();
             }
         }
     }
@@ -58,66 +61,234 @@ public class Controller {
     /**
      * \brief Данный метод используется когда мы задаём собственную матрицу board,
      * т.е. мы сами заполняет числами двумерный массив, для дальнейшего его решения.
+     * Если числа - не перестановка от 0 до N^2 - 1, в метке text выводится ошибка, и board не меняется.
+     * Идущий поиск при этом останавливается и отвязывается от метки (finish()), иначе в связанную метку
+     * нельзя было бы записать ошибку, а сообщение об отмене затёрло бы её.
      *
      */
     public void makeFieldFromMatrix() {
-        currentStatement = 0;
-        GraphicsContext gc = mainCan.getGraphicsContext2D();
-        gc.clearRect(0, 0, mainCan.getWidth(), mainCan.getHeight());
         String temp = matrix.getText();
         if (temp.length() != 0) {
             String strArr[] = temp.split("\\p{P}?[ \\t\\n\\r]+");
             int size = (int) Math.sqrt(strArr.length);
             int matrix[][] = new int[size][size];
             int k = 0;
-            for(int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    matrix[i][j] = Integer.parseInt(strArr[k]);
-                    k++;
+            try {
+                for(int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        matrix[i][j] = Integer.parseInt(strArr[k]);
+                        k++;
+                    }
                 }
+                currentField = new Field(matrix);
+            } catch (IllegalArgumentException e) {
+                cancelSolving();
+                if (task != null)
+                    finish(task);
+                text.setText("invalid board: " + e.getMessage());
+                return;
             }
-            currentField = new Field(matrix);
-            solver = new Solver(currentField);
-            if(solver.isSolvable()) {
-                solution = new Vector(0);
-                for (Board board : solver.solution()) {
-                    solution.add(board);
-                }
-            }
-            int pxlSize = 300;
-            currentField.drawField(pxlSize, mainCan, ((int) mainCan.getWidth() - pxlSize) / 2, ((int) mainCan.getHeight() - pxlSize) / 2, gc);
+            draw();
+            solve();
         }
     }
 
     /**
-     * \brief Данный метод, отрабатывает клавишу "вперед", чтобы не решать заново каждый раз board, создаётся
-     * вектор содержащий в себе последовательность board которые выводятся на canvas
+     * \brief Данный метод запускает решение currentField в фоновом потоке.
+     * \details Предыдущий поиск и проигрывание останавливаются. Solver получает копию board,
+     * т.к. currentField меняется при показе решения. Ход поиска передаётся в метку text через
+     * updateMessage() (не чаще чем раз в 100 мс, см. SearchBudget), а решение начинает проигрываться,
+     * как только поиск завершится.
      */
-    public void nextNode() {
+    private void solve() {
+        cancelSolving();
+        solver = null;
+        cursor = null;
+        final Board initial = new Board(currentField);
+        final SearchBudget budget = new SearchBudget(TIME_LIMIT, NODE_LIMIT);
+        final Task<Solver> current = new Task<Solver>() {
+            @Override
+            protected Solver call() {
+                budget.addListener(new SearchBudget.Listener() {
+                    @Override
+                    public void progress(long expanded, int open, int bound, double nodesPerSecond) {
+                        updateMessage(String.format("nodes: %d, open: %d%nf-bound: %d, %.0f nodes/sec",
+                                expanded, open, bound, nodesPerSecond));
+                    }
+                });
+                return new Solver(initial, engine, Heuristic.defaultFor(initial.dimension()), budget);
+            }
+
+            @Override
+            protected void cancelled() {
+                budget.cancel();
+            }
+        };
+        current.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent event) {
+                if (finish(current))
+                    showSolution(current.getValue());
+            }
+        });
+        current.setOnFailed(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent event) {
+                if (!finish(current))
+                    return;
+                Throwable e = current.getException();
+                if (e instanceof SearchAbortedException)
+                    text.setText("stopped (" + e.getMessage() + ") after " + ((SearchAbortedException) e).expanded() + " nodes");
+                else if (e instanceof OutOfMemoryError)
+                    text.setText("stopped: out of memory");
+                else
+                    text.setText("error: " + e);
+            }
+        });
+        current.setOnCancelled(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent event) {
+                if (finish(current))
+                    text.setText("cancelled");
+            }
+        });
+        task = current;
+        text.textProperty().bind(current.messageProperty());
+        cancel.setDisable(false);
+        Thread thread = new Thread(current, "solver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Данный метод отвязывает метку text от завершившегося поиска.
+     *
+     * @param finished
+     * @return false, если finished - уже заменённый новым поиск, результат которого не нужен
+     */
+    private boolean finish(Task<Solver> finished) {
+        if (task != finished)
+            return false;
+        text.textProperty().unbind();
+        cancel.setDisable(true);
+        task = null;
+        return true;
+    }
+
+    /**
+     * \brief Данный метод показывает найденное решение и запускает его проигрывание.
+     * \details Board решения не хранятся: курсор решения делает и отменяет ходы прямо на currentField.
+     *
+     * @param result
+     */
+    private void showSolution(Solver result) {
+        solver = result;
         if (solver.isSolvable()) {
-            if (0 <= currentStatement && currentStatement < solution.size() - 1) {
-                currentStatement += 1;
-                    GraphicsContext gc = mainCan.getGraphicsContext2D();
-                    gc.clearRect(0, 0, mainCan.getWidth(), mainCan.getHeight());
-                    currentField.board = solution.get(currentStatement).board;
-                    int pxlSize = 300;
-                    currentField.drawField(pxlSize, mainCan, ((int) mainCan.getWidth() - pxlSize) / 2, ((int) mainCan.getHeight() - pxlSize) / 2, gc);
+            text.setText("number of moves: " + solver.moves());
+            cursor = solver.solution().cursor(currentField);
+            startPlayback();
+        } else {
+            text.setText("NO SOLUTION");
+        }
+    }
+
+    /**
+     * \brief Данный метод отрабатывает клавишу "Cancel": прерывает поиск и проигрывание решения.
+     */
+    public void cancelSolving() {
+        stopPlayback();
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * \brief Данный метод проигрывает решение: каждый ход длится PLAYBACK_MILLIS, сдвигаемая клетка рисуется
+     * в промежуточном положении в каждом кадре AnimationTimer.
+     * \details Если за кадр проходит несколько ходов (маленький PLAYBACK_MILLIS), они делаются все,
+     * а рисуются только изменившиеся клетки, поэтому скорость проигрывания не зависит от частоты кадров.
+     */
+    private void startPlayback() {
+        stopPlayback();
+        if (solver.moves() < 1)
+            return;
+        final GraphicsContext gc = mainCan.getGraphicsContext2D();
+        final long moveNanos = Math.max(1, PLAYBACK_MILLIS) * 1000000;
+        playback = new AnimationTimer() {
+            private long moveStart = -1;
+
+            @Override
+            public void handle(long now) {
+                if (moveStart < 0)
+                    moveStart = now;
+                while (now - moveStart >= moveNanos) {
+                    int previousBlank = currentField.blankIndex();
+                    cursor.forward();
+                    currentField.drawMove(gc, previousBlank);
+                    moveStart += moveNanos;
+                    if (cursor.nextMove() < 0) {
+                        stop();
+                        playback = null;
+                        return;
+                    }
+                }
+                int from = currentField.target(cursor.nextMove());
+                currentField.drawSlide(gc, from, (double) (now - moveStart) / moveNanos);
             }
+        };
+        playback.start();
+    }
+
+    /**
+     * Данный метод останавливает проигрывание решения; недорисованный сдвиг клетки стирается перерисовкой поля.
+     */
+    private void stopPlayback() {
+        if (playback != null) {
+            playback.stop();
+            playback = null;
+            draw();
         }
     }
 
+    /**
+     * Данный метод рисует currentField в центре canvas.
+     */
+    private void draw() {
+        GraphicsContext gc = mainCan.getGraphicsContext2D();
+        gc.clearRect(0, 0, mainCan.getWidth(), mainCan.getHeight());
+        int pxlSize = 300;
+        currentField.drawField(pxlSize, mainCan, ((int) mainCan.getWidth() - pxlSize) / 2, ((int) mainCan.getHeight() - pxlSize) / 2, gc);
+    }
+
+    /**
+     * \brief Данный метод, отрабатывает клавишу "вперед", чтобы не решать заново каждый раз board,
+     * следующий board получается ходом курсора решения на currentField
+     */
+    public void nextNode() {
+        stopPlayback();
+        step();
+    }
+
+    /**
+     * Данный метод показывает следующий board решения, перерисовывая только две изменившиеся клетки.
+     */
+    private void step() {
+        if (cursor == null)
+            return;
+        int previousBlank = currentField.blankIndex();
+        if (cursor.forward())
+            currentField.drawMove(mainCan.getGraphicsContext2D(), previousBlank);
+    }
+
     /**
      * \briefДанный метод, обрабатывает клафишу "назад".
       */
     public void prevNode() {
-        if (solver.isSolvable()) {
-            if (currentStatement > 0)
-                currentStatement -= 1;
-                GraphicsContext gc = mainCan.getGraphicsContext2D();
-                gc.clearRect(0, 0, mainCan.getWidth(), mainCan.getHeight());
-                currentField.board = solution.get(currentStatement).board;
-                int pxlSize = 300;
-                currentField.drawField(pxlSize, mainCan, ((int) mainCan.getWidth() - pxlSize) / 2, ((int) mainCan.getHeight() - pxlSize) / 2, gc);
-        }
+        stopPlayback();
+        if (cursor == null)
+            return;
+        int previousBlank = currentField.blankIndex();
+        if (cursor.back())
+            currentField.drawMove(mainCan.getGraphicsContext2D(), previousBlank);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,814 @@
+package sample;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс отыскивает кратчайшее решение алгоритмом External A*, храня фронт поиска на диске.
+ * \details Состояния раскладываются по корзинам (g, h) - количество ходов и оценка. Корзины раскрываются
+ * в порядке возрастания f = g + h, при равном f - по возрастанию g. Потомки состояний корзины (g, h)
+ * попадают в корзины (g + 1, h') и копятся в памяти; когда буферы превышают бюджет памяти, каждый
+ * сортируется и записывается на диск отдельным отсортированным фрагментом (run).
+ *
+ * Повторы удаляются отложенно (delayed duplicate detection): перед раскрытием корзины все её фрагменты
+ * сливаются с удалением одинаковых состояний, а затем из результата вычитается корзина (g - 2, h).
+ * Board на поле из клеток - двудольный граф, поэтому состояние, найденное на глубине g, может повторять
+ * только состояния глубин g - 2, g - 4, ...; родители потомков лежат как раз в слое g - 2 (относительно
+ * потомков), а более далёкие повторы лишь увеличивают работу, но не нарушают оптимальность.
+ * Закрытый список целиком не хранится (frontier search).
+ *
+ * В каждой записи кроме упакованных клеток хранится ход, которым состояние получено. Решение
+ * восстанавливается от цели назад: ход отменяется, а запись предшественника находится двоичным поиском
+ * в отсортированных файлах корзин предыдущего слоя g, начиная с корзины его собственной оценки.
+ *
+ * Эвристика должна быть допустимой, но не обязана быть согласованной: базы шаблонов
+ * (AdditivePatternDatabase) при одном ходе могут уменьшить оценку больше чем на 1. Поэтому оценка потомка
+ * поднимается правилом pathmax до h родителя минус 1: f потомка не меньше f родителя, корзины раскрываются
+ * в прежнем порядке, а оценка остаётся допустимой. Тогда одно состояние может попасть в корзины с разными h
+ * одного слоя g и не быть вычтено как повтор - это лишняя работа, но не ошибка.
+ *
+ * После каждого слоя f все буферы сбрасываются на диск и записывается контрольная точка, поэтому прерванный
+ * поиск (SearchBudget, сбой процесса) продолжается с последнего слоя при повторном запуске с тем же каталогом.
+ *
+ * Файлы поиска лежат не в самом переданном каталоге, а в подкаталоге search-<отпечаток>, где отпечаток -
+ * хэш SHA-256 описания задачи (board и эвристика). Пока поиск идёт, подкаталог заблокирован файлом lock
+ * (FileLock), поэтому одновременные поиски - в одном процессе или в разных - не трогают файлы друг друга:
+ * поиск того же board, застав подкаталог занятым, берёт следующий (search-<отпечаток>-2 и т.д.).
+ * Удаляются только собственные файлы поиска (b-*, r-*, checkpoint), поэтому каталог может быть общим
+ * с другими данными, например с базами шаблонов. Пустой файл lock остаётся: удалять его небезопасно,
+ * т.к. другой процесс может уже ждать его блокировки.
+ */
+public class ExternalSolver {
+    private static final int CHECKPOINT_MAGIC = 0x45585431;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final Path root;
+    private Path dir;
+    private final long ramBytes;
+    private final int stride;
+    private final int recordSize;
+    private final Map<Long, Buffer> buffers = new HashMap<Long, Buffer>();
+    private final Set<Long> finalized = new HashSet<Long>();
+    private final Map<Long, Integer> runs = new HashMap<Long, Integer>();
+    private final Map<Long, Integer> consumed = new HashMap<Long, Integer>();
+    private long buffered = 0;
+    private long expanded = 0;
+    private long generated = 0;
+    private long duplicates = 0;
+    private long bytesWritten = 0;
+    private int peakBucket = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * \brief Данный класс - буфер потомков одной корзины в памяти.
+     */
+    private final class Buffer {
+        private long[] states = new long[64 * stride];
+        private byte[] moves = new byte[64];
+        private int size = 0;
+
+        /**
+         * Данный метод добавляет состояние board, полученное ходом move.
+         *
+         * @param board
+         * @param move
+         */
+        private void add(Board board, int move) {
+            if (this.size == this.moves.length) {
+                long[] states = new long[2 * this.states.length];
+                byte[] moves = new byte[2 * this.moves.length];
+                System.arraycopy(this.states, 0, states, 0, this.states.length);
+                System.arraycopy(this.moves, 0, moves, 0, this.moves.length);
+                this.states = states;
+                this.moves = moves;
+            }
+            board.writeState(this.states, this.size * stride);
+            this.moves[this.size] = (byte) move;
+            this.size++;
+        }
+    }
+
+    /**
+     * \brief Данный класс последовательно читает записи отсортированного файла.
+     */
+    private final class RecordReader implements Comparable<RecordReader> {
+        private final DataInputStream in;
+        private final long[] state = new long[stride];
+        private int move;
+
+        private RecordReader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), 1 << 16));
+        }
+
+        /**
+         * Данный метод читает следующую запись.
+         *
+         * @return false в конце файла
+         * @throws IOException
+         */
+        private boolean next() throws IOException {
+            try {
+                for (int i = 0; i < stride; i++)
+                    this.state[i] = this.in.readLong();
+                this.move = this.in.readByte();
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        private void close() throws IOException {
+            this.in.close();
+        }
+
+        @Override
+        public int compareTo(RecordReader that) {
+            return compare(this.state, 0, that.state, 0);
+        }
+    }
+
+    /**
+     * \brief Данный класс последовательно пишет записи в файл.
+     */
+    private final class RecordWriter {
+        private final DataOutputStream out;
+        private long count = 0;
+
+        private RecordWriter(Path file) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)), 1 << 16));
+        }
+
+        private void write(long[] states, int offset, int move) throws IOException {
+            for (int i = 0; i < stride; i++)
+                this.out.writeLong(states[offset + i]);
+            this.out.writeByte(move);
+            this.count++;
+        }
+
+        private void close() throws IOException {
+            this.out.close();
+            bytesWritten += this.count * recordSize;
+        }
+    }
+
+    /**
+     * \brief Данный конструктор готовит поиск для решаемого board.
+     *
+     * @param initial
+     * @param heuristic допустимая эвристика
+     * @param budget
+     * @param dir каталог для подкаталогов поиска (создаётся при необходимости)
+     * @param ramBytes сколько байт памяти можно занять буферами потомков
+     */
+    public ExternalSolver(Board initial, Heuristic heuristic, SearchBudget budget, Path dir, long ramBytes) {
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.root = dir;
+        this.ramBytes = ramBytes;
+        this.stride = initial.stateLength();
+        this.recordSize = 8 * this.stride + 1;
+    }
+
+    /**
+     * \brief Данный метод ищет решение и возвращает последовательность ходов.
+     * \details Подкаталог поиска блокируется на всё время решения. Если в нём есть контрольная точка того же board
+     * и той же эвристики, поиск продолжается с неё, иначе подкаталог очищается от старых файлов поиска.
+     * После успешного решения файлы удаляются, после прерывания - остаются для продолжения.
+     *
+     * @return ходы Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT
+     * @throws SearchAbortedException если поиск отменён или исчерпал бюджет
+     * @throws UncheckedIOException при ошибке ввода-вывода
+     */
+    public int[] solve() {
+        long start = System.nanoTime();
+        FileChannel lock = null;
+        try {
+            lock = this.lockDirectory();
+            int f = this.resume();
+            if (f < 0) {
+                this.clean();
+                Board board = new Board(this.initial);
+                f = this.heuristic.estimate(board);
+                this.buffer(0, f).add(board, 0);
+                this.buffered++;
+                this.flushAll();
+                this.checkpoint(f);
+            }
+            Board board = new Board(this.initial);
+            while (true) {
+                for (int g = 0; g <= f; g++) {
+                    long key = key(g, f - g);
+                    if (!this.buffers.containsKey(key) && !this.runs.containsKey(key) && !this.finalized.contains(key))
+                        continue;
+                    int[] path = this.expandBucket(g, f - g, board);
+                    if (path != null) {
+                        this.clean();
+                        return path;
+                    }
+                }
+                f++;
+                this.flushAll();
+                this.checkpoint(f);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.elapsedNanos = System.nanoTime() - start;
+            if (lock != null) {
+                try {
+                    lock.close();
+                } catch (IOException e) {
+                    System.err.println("Cannot unlock " + this.dir + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * \brief Данный метод выбирает и блокирует подкаталог поиска.
+     * \details Пробуются search-<отпечаток>, search-<отпечаток>-2, ...; берётся первый, чей файл lock удалось
+     * заблокировать. Блокировка снимается закрытием возвращённого канала.
+     *
+     * @return канал заблокированного файла lock
+     * @throws IOException если все подкаталоги заняты или не создаются
+     */
+    private FileChannel lockDirectory() throws IOException {
+        String name = "search-" + this.fingerprint();
+        for (int attempt = 1; attempt <= 100; attempt++) {
+            Path dir = this.root.resolve(attempt == 1 ? name : name + "-" + attempt);
+            Files.createDirectories(dir);
+            FileChannel channel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = null;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // подкаталог занят другим поиском этого процесса
+            } finally {
+                if (lock == null)
+                    channel.close();
+            }
+            if (lock != null) {
+                this.dir = dir;
+                return channel;
+            }
+        }
+        throw new IOException("All scratch directories " + name + "* in " + this.root + " are in use");
+    }
+
+    /**
+     * Данный метод вычисляет отпечаток задачи - начало хэша SHA-256 её описания.
+     *
+     * @return 16 шестнадцатеричных цифр
+     * @throws IOException
+     */
+    private String fingerprint() throws IOException {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(this.header());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < 8; i++)
+            s.append(String.format("%02x", digest[i]));
+        return s.toString();
+    }
+
+    /**
+     * \brief Данный метод готовит корзину (g, h) и раскрывает все её состояния.
+     * \details h корзины может быть поднят pathmax, поэтому оценки потомков считаются от собственной оценки
+     * состояния, а затем снова поднимаются до h - 1.
+     *
+     * @param g
+     * @param h
+     * @param board изменяемый board для раскрытия
+     * @return решение, если в корзине есть цель, иначе null
+     * @throws IOException
+     */
+    private int[] expandBucket(int g, int h, Board board) throws IOException {
+        Path file = this.finalizeBucket(g, h);
+        RecordReader reader = new RecordReader(file);
+        try {
+            while (reader.next()) {
+                board.readState(reader.state, 0);
+                if (board.isGoal())
+                    return this.reconstruct(g, reader.state, reader.move, board);
+                if ((++this.expanded & (SearchBudget.CHECK_INTERVAL - 1)) == 0)
+                    this.budget.check(this.expanded, (int) Math.min(this.buffered, Integer.MAX_VALUE), g + h);
+                int own = this.heuristic.estimate(board);
+                int from = board.blankIndex();
+                for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                    int to = board.target(direction);
+                    if (to < 0)
+                        continue;
+                    int tile = board.tile(to);
+                    board.slide(to);
+                    int estimate = Math.max(this.heuristic.update(board, own, tile, to, from), h - 1);
+                    this.buffer(g + 1, estimate).add(board, direction);
+                    this.generated++;
+                    if (++this.buffered * (this.recordSize + 4) * 2 > this.ramBytes)
+                        this.flushAll();
+                    board.slide(from);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return null;
+    }
+
+    /**
+     * \brief Данный метод сливает фрагменты корзины (g, h) в один отсортированный файл без повторов
+     * и вычитает из него корзину (g - 2, h).
+     * \details Фрагменты удаляются только после контрольной точки слоя: если процесс прервётся раньше,
+     * корзина будет собрана из них заново.
+     *
+     * @param g
+     * @param h
+     * @return файл корзины
+     * @throws IOException
+     */
+    private Path finalizeBucket(int g, int h) throws IOException {
+        long key = key(g, h);
+        Path result = this.dir.resolve("b-" + g + "-" + h + ".bin");
+        Buffer buffer = this.buffers.remove(key);
+        if (buffer != null)
+            this.writeRun(g, h, buffer);
+        PriorityQueue<RecordReader> queue = new PriorityQueue<RecordReader>();
+        List<RecordReader> readers = new ArrayList<RecordReader>();
+        RecordReader older = null;
+        Path tmp = this.dir.resolve("b-" + g + "-" + h + ".tmp");
+        RecordWriter writer = new RecordWriter(tmp);
+        try {
+            Integer count = this.runs.get(key);
+            for (int i = 0; count != null && i < count; i++) {
+                RecordReader reader = new RecordReader(this.run(g, h, i));
+                readers.add(reader);
+                if (reader.next())
+                    queue.add(reader);
+            }
+            Path previous = this.dir.resolve("b-" + (g - 2) + "-" + h + ".bin");
+            boolean olderLeft = false;
+            if (g >= 2 && Files.exists(previous)) {
+                older = new RecordReader(previous);
+                olderLeft = older.next();
+            }
+            long[] last = new long[this.stride];
+            boolean any = false;
+            while (!queue.isEmpty()) {
+                RecordReader min = queue.poll();
+                if (any && compare(min.state, 0, last, 0) == 0) {
+                    this.duplicates++;
+                } else {
+                    System.arraycopy(min.state, 0, last, 0, this.stride);
+                    any = true;
+                    while (olderLeft && compare(older.state, 0, min.state, 0) < 0)
+                        olderLeft = older.next();
+                    if (olderLeft && compare(older.state, 0, min.state, 0) == 0)
+                        this.duplicates++;
+                    else
+                        writer.write(min.state, 0, min.move);
+                }
+                if (min.next())
+                    queue.add(min);
+            }
+        } finally {
+            writer.close();
+            for (RecordReader reader : readers)
+                reader.close();
+            if (older != null)
+                older.close();
+        }
+        this.peakBucket = (int) Math.max(this.peakBucket, Math.min(writer.count, Integer.MAX_VALUE));
+        Files.move(tmp, result, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.finalized.add(key);
+        Integer count = this.runs.remove(key);
+        if (count != null)
+            this.consumed.put(key, count);
+        return result;
+    }
+
+    /**
+     * \brief Данный метод восстанавливает решение от цели назад.
+     * \details Оценка в корзине предшественника не меньше его собственной оценки (pathmax) и не больше
+     * g - (depth - 1), т.к. f предшественника не больше длины решения; корзины проверяются в этом порядке.
+     *
+     * @param g длина решения
+     * @param goal упакованная цель
+     * @param move ход, которым получена цель
+     * @param board изменяемый board
+     * @return ходы
+     * @throws IOException
+     */
+    private int[] reconstruct(int g, long[] goal, int move, Board board) throws IOException {
+        int[] path = new int[g];
+        long[] state = goal.clone();
+        for (int depth = g; depth > 0; depth--) {
+            path[depth - 1] = move;
+            board.readState(state, 0);
+            board.slide(board.target(move ^ 1));
+            board.writeState(state, 0);
+            move = -1;
+            for (int h = this.heuristic.estimate(board); move < 0 && h <= g - depth + 1; h++) {
+                Path file = this.dir.resolve("b-" + (depth - 1) + "-" + h + ".bin");
+                if (Files.exists(file))
+                    move = this.find(file, state);
+            }
+            if (move < 0)
+                throw new IllegalStateException("State at depth " + (depth - 1) + " is missing from " + this.dir);
+        }
+        return path;
+    }
+
+    /**
+     * \brief Данный метод находит запись состояния в отсортированном файле корзины двоичным поиском.
+     *
+     * @param file
+     * @param state
+     * @return ход, которым получено состояние, или -1, если состояния в файле нет
+     * @throws IOException
+     */
+    private int find(Path file, long[] state) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer record = ByteBuffer.allocate(this.recordSize);
+            long[] probe = new long[this.stride];
+            long low = 0;
+            long high = channel.size() / this.recordSize - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                record.clear();
+                while (record.hasRemaining() && channel.read(record, mid * this.recordSize + record.position()) >= 0)
+                    ;
+                record.flip();
+                for (int i = 0; i < this.stride; i++)
+                    probe[i] = record.getLong();
+                int c = compare(probe, 0, state, 0);
+                if (c == 0)
+                    return record.get();
+                if (c < 0)
+                    low = mid + 1;
+                else
+                    high = mid - 1;
+            }
+        } finally {
+            channel.close();
+        }
+        return -1;
+    }
+
+    /**
+     * Данный метод возвращает буфер корзины (g, h), создавая его при необходимости.
+     *
+     * @param g
+     * @param h
+     * @return буфер
+     */
+    private Buffer buffer(int g, int h) {
+        long key = key(g, h);
+        if (this.finalized.contains(key))
+            throw new IllegalStateException("Bucket (" + g + ", " + h + ") is already expanded");
+        Buffer buffer = this.buffers.get(key);
+        if (buffer == null) {
+            buffer = new Buffer();
+            this.buffers.put(key, buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Данный метод записывает все буферы на диск.
+     *
+     * @throws IOException
+     */
+    private void flushAll() throws IOException {
+        for (Map.Entry<Long, Buffer> e : this.buffers.entrySet())
+            this.writeRun((int) (e.getKey() >>> 32), (int) (long) e.getKey(), e.getValue());
+        this.buffers.clear();
+        this.buffered = 0;
+    }
+
+    /**
+     * \brief Данный метод сортирует буфер и записывает его очередным фрагментом корзины (g, h), без повторов.
+     *
+     * @param g
+     * @param h
+     * @param buffer
+     * @throws IOException
+     */
+    private void writeRun(int g, int h, Buffer buffer) throws IOException {
+        if (buffer.size == 0)
+            return;
+        int[] order = new int[buffer.size];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        this.sort(buffer.states, order, new int[order.length], 0, order.length);
+        long key = key(g, h);
+        Integer count = this.runs.get(key);
+        int index = count == null ? 0 : count;
+        RecordWriter writer = new RecordWriter(this.run(g, h, index));
+        try {
+            for (int i = 0; i < order.length; i++) {
+                if (i > 0 && compare(buffer.states, order[i] * this.stride, buffer.states, order[i - 1] * this.stride) == 0) {
+                    this.duplicates++;
+                    continue;
+                }
+                writer.write(buffer.states, order[i] * this.stride, buffer.moves[order[i]]);
+            }
+        } finally {
+            writer.close();
+        }
+        this.runs.put(key, index + 1);
+        this.buffered -= buffer.size;
+    }
+
+    /**
+     * Данный метод сортирует слиянием номера записей order[from, to) по состояниям.
+     *
+     * @param states
+     * @param order
+     * @param tmp
+     * @param from
+     * @param to
+     */
+    private void sort(long[] states, int[] order, int[] tmp, int from, int to) {
+        if (to - from < 2)
+            return;
+        int mid = (from + to) >>> 1;
+        this.sort(states, order, tmp, from, mid);
+        this.sort(states, order, tmp, mid, to);
+        if (compare(states, order[mid - 1] * this.stride, states, order[mid] * this.stride) <= 0)
+            return;
+        System.arraycopy(order, from, tmp, from, to - from);
+        for (int i = from, a = from, b = mid; i < to; i++) {
+            if (b >= to || (a < mid && compare(states, tmp[a] * this.stride, states, tmp[b] * this.stride) <= 0))
+                order[i] = tmp[a++];
+            else
+                order[i] = tmp[b++];
+        }
+    }
+
+    /**
+     * Данный метод сравнивает два упакованных состояния длины stride.
+     *
+     * @param a
+     * @param offsetA
+     * @param b
+     * @param offsetB
+     * @return отрицательное, 0 или положительное число
+     */
+    private int compare(long[] a, int offsetA, long[] b, int offsetB) {
+        for (int i = 0; i < this.stride; i++) {
+            int c = Long.compare(a[offsetA + i], b[offsetB + i]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+
+    /**
+     * Данный метод возвращает ключ корзины.
+     *
+     * @param g
+     * @param h
+     * @return g в старших 32 битах, h в младших
+     */
+    private static long key(int g, int h) {
+        return ((long) g << 32) | (h & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Данный метод возвращает имя файла фрагмента.
+     *
+     * @param g
+     * @param h
+     * @param index
+     * @return путь
+     */
+    private Path run(int g, int h, int index) {
+        return this.dir.resolve("r-" + g + "-" + h + "-" + index + ".run");
+    }
+
+    /**
+     * Данный метод удаляет фрагменты корзин, собранных в завершённом слое.
+     *
+     * @throws IOException
+     */
+    private void deleteConsumedRuns() throws IOException {
+        for (Map.Entry<Long, Integer> e : this.consumed.entrySet())
+            for (int i = 0; i < e.getValue(); i++)
+                Files.deleteIfExists(this.run((int) (e.getKey() >>> 32), (int) (long) e.getKey(), i));
+        this.consumed.clear();
+    }
+
+    /**
+     * \brief Данный метод записывает контрольную точку: board, эвристику и слой f, с которого продолжать.
+     * \details После записи удаляются фрагменты уже собранных корзин.
+     *
+     * @param f
+     * @throws IOException
+     */
+    private void checkpoint(int f) throws IOException {
+        Path tmp = this.dir.resolve("checkpoint.tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+        try {
+            this.writeHeader(out);
+            out.writeInt(f);
+        } finally {
+            out.close();
+        }
+        Files.move(tmp, this.dir.resolve("checkpoint"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.deleteConsumedRuns();
+    }
+
+    /**
+     * Данный метод возвращает описание задачи, записанное writeHeader().
+     *
+     * @return байты описания
+     * @throws IOException
+     */
+    private byte[] header() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        this.writeHeader(out);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Данный метод пишет описание задачи: размерность, изначальный board и название эвристики.
+     *
+     * @param out
+     * @throws IOException
+     */
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(this.initial.dimension());
+        long[] state = new long[this.stride];
+        this.initial.writeState(state, 0);
+        for (long word : state)
+            out.writeLong(word);
+        out.writeUTF(this.heuristic.name());
+    }
+
+    /**
+     * \brief Данный метод продолжает прерванный поиск, если в каталоге есть подходящая контрольная точка.
+     * \details Готовые корзины и фрагменты находятся по именам файлов. Корзины слоёв f и дальше
+     * собираются заново из фрагментов (их могли собрать до сбоя только частично раскрытыми),
+     * а фрагменты более ранних слоёв уже не нужны.
+     *
+     * @return слой f, с которого продолжать, или -1
+     * @throws IOException
+     */
+    private int resume() throws IOException {
+        Path file = this.dir.resolve("checkpoint");
+        if (!Files.exists(file))
+            return -1;
+        byte[] actual = Files.readAllBytes(file);
+        byte[] wanted = this.header();
+        if (actual.length != wanted.length + 4)
+            return -1;
+        for (int i = 0; i < wanted.length; i++)
+            if (actual[i] != wanted[i])
+                return -1;
+        int f = ByteBuffer.wrap(actual, wanted.length, 4).getInt();
+        DirectoryStream<Path> files = Files.newDirectoryStream(this.dir);
+        try {
+            for (Path p : files) {
+                String[] parts = p.getFileName().toString().split("[-.]");
+                if (parts.length == 4 && parts[0].equals("b") && parts[3].equals("bin")) {
+                    int g = Integer.parseInt(parts[1]);
+                    int h = Integer.parseInt(parts[2]);
+                    if (g + h < f)
+                        this.finalized.add(key(g, h));
+                    else
+                        Files.delete(p);
+                } else if (parts.length == 5 && parts[0].equals("r") && parts[4].equals("run")) {
+                    int g = Integer.parseInt(parts[1]);
+                    int h = Integer.parseInt(parts[2]);
+                    int index = Integer.parseInt(parts[3]);
+                    Integer count = this.runs.get(key(g, h));
+                    if (g + h < f)
+                        Files.delete(p);
+                    else if (count == null || count <= index)
+                        this.runs.put(key(g, h), index + 1);
+                } else if (parts.length == 4 && parts[0].equals("b") && parts[3].equals("tmp")) {
+                    Files.delete(p);
+                }
+            }
+        } finally {
+            files.close();
+        }
+        return f;
+    }
+
+    /**
+     * Данный метод удаляет из подкаталога все файлы поиска (и только их: b-*, r-*, checkpoint).
+     *
+     * @throws IOException
+     */
+    private void clean() throws IOException {
+        DirectoryStream<Path> files = Files.newDirectoryStream(this.dir);
+        try {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                if (name.startsWith("b-") && (name.endsWith(".bin") || name.endsWith(".tmp"))
+                        || name.startsWith("r-") && name.endsWith(".run")
+                        || name.equals("checkpoint") || name.equals("checkpoint.tmp"))
+                    Files.delete(p);
+            }
+        } finally {
+            files.close();
+        }
+        this.finalized.clear();
+        this.runs.clear();
+        this.consumed.clear();
+    }
+
+    /**
+     * Данный метод возвращает количество раскрытых узлов.
+     *
+     * @return this.expanded
+     */
+    public long nodes() {
+        return this.expanded;
+    }
+
+    /**
+     * Данный метод возвращает количество сгенерированных узлов.
+     *
+     * @return this.generated
+     */
+    public long generated() {
+        return this.generated;
+    }
+
+    /**
+     * Данный метод возвращает количество повторов, удалённых при слиянии фрагментов.
+     *
+     * @return this.duplicates
+     */
+    public long duplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Данный метод возвращает наибольший размер корзины.
+     *
+     * @return количество записей
+     */
+    public int peakBucket() {
+        return this.peakBucket;
+    }
+
+    /**
+     * Данный метод возвращает количество байт, записанных на диск.
+     *
+     * @return this.bytesWritten
+     */
+    public long bytesWritten() {
+        return this.bytesWritten;
+    }
+
+    /**
+     * Данный метод возвращает время поиска в наносекундах.
+     *
+     * @return this.elapsedNanos
+     */
+    public long elapsedNanos() {
+        return this.elapsedNanos;
+    }
+}
@@ -1,12 +1,26 @@
 package sample;
 
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
 
 /**
  * \brief Данный класс отрисовывает board в интерфейсе
+ * \details Клетки рисуются готовыми изображениями (glyph), которые строятся один раз для каждого значения
+ * и размера клетки методом drawKnucle(). После полной отрисовки drawField() запоминает положение поля,
+ * и ход можно дорисовать методом drawMove() (перерисовываются только две изменившиеся клетки),
+ * а промежуточное положение сдвигаемой клетки - методом drawSlide().
+ * Все методы рисования вызываются только из потока JavaFX.
  */
 public class Field extends Board {
+    private static Image[] glyphs = new Image[0];
+    private static int glyphSize = -1;
+
+    private int originX;
+    private int originY;
+    private int size = -1;
 
     public Field(int n) {
         super(n);
@@ -30,6 +44,35 @@ public class Field extends Board {
         gc.fillText("" + n + "", x + (size / 2) - 5, y + (size / 2) + 5);
     }
 
+    /**
+     * \brief Данный метод возвращает изображение клетки со значением n для клеток размера size.
+     * \details Изображение рисуется методом drawKnucle() на отдельном canvas с прозрачным фоном
+     * и запоминается; при смене размера клетки все изображения строятся заново.
+     *
+     * @param n
+     * @param size
+     * @return glyph
+     */
+    private static Image glyph(int n, int size) {
+        if (size != glyphSize) {
+            glyphs = new Image[glyphs.length];
+            glyphSize = size;
+        }
+        if (n >= glyphs.length) {
+            Image[] grown = new Image[Math.max(n + 1, glyphs.length * 2)];
+            System.arraycopy(glyphs, 0, grown, 0, glyphs.length);
+            glyphs = grown;
+        }
+        if (glyphs[n] == null) {
+            Canvas canvas = new Canvas(size, size);
+            drawKnucle(n, 0, 0, size, canvas, canvas.getGraphicsContext2D());
+            SnapshotParameters parameters = new SnapshotParameters();
+            parameters.setFill(Color.TRANSPARENT);
+            glyphs[n] = canvas.snapshot(parameters, null);
+        }
+        return glyphs[n];
+    }
+
     /**
      *  \brief Данный метод отрисовывает всё поле т.е. board полностью на холсте - т.е. на canvas
      * @param pxlSize
@@ -40,20 +83,76 @@ public class Field extends Board {
      */
     public void drawField(int pxlSize, Canvas canvas, int x, int y, GraphicsContext gc) {
         gc.strokeRoundRect(x, y, pxlSize, pxlSize, 0, 0);
-        int size = pxlSize / this.dimension();
-        int currX = x;
-        int currY = y;
-        for (int i = 0; i < this.dimension(); i++) {
-            for (int j = 0; j < this.dimension(); j++) {
-                if (this.board[i][j] != 0)
-                    drawKnucle(this.board[i][j], currX, currY, size, canvas, gc);
-                currX += size;
-            }
-            currX = x;
-            currY += size;
+        this.originX = x;
+        this.originY = y;
+        this.size = pxlSize / this.dimension();
+        int cells = this.dimension() * this.dimension();
+        for (int index = 0; index < cells; index++) {
+            int value = this.tile(index);
+            if (value != 0)
+                gc.drawImage(glyph(value, this.size), this.cellX(index), this.cellY(index));
         }
+    }
+
+    /**
+     * \brief Данный метод дорисовывает сделанный ход: клетку, где была пустая клетка, и новую пустую клетку.
+     * \details Поле должно быть до этого нарисовано методом drawField().
+     *
+     * @param gc
+     * @param previousBlank индекс пустой клетки до хода
+     */
+    public void drawMove(GraphicsContext gc, int previousBlank) {
+        this.clearCell(gc, previousBlank);
+        this.clearCell(gc, this.blankIndex());
+        int value = this.tile(previousBlank);
+        if (value != 0)
+            gc.drawImage(glyph(value, this.size), this.cellX(previousBlank), this.cellY(previousBlank));
+    }
 
+    /**
+     * \brief Данный метод рисует клетку from, сдвинутую на долю progress пути к пустой клетке.
+     * \details Сдвиг происходит между двумя соседними клетками, поэтому перерисовываются только они.
+     *
+     * @param gc
+     * @param from индекс сдвигаемой клетки (соседней с пустой)
+     * @param progress от 0 (клетка на месте) до 1 (клетка на месте пустой)
+     */
+    public void drawSlide(GraphicsContext gc, int from, double progress) {
+        int to = this.blankIndex();
+        this.clearCell(gc, from);
+        this.clearCell(gc, to);
+        double x = this.cellX(from) + (this.cellX(to) - this.cellX(from)) * progress;
+        double y = this.cellY(from) + (this.cellY(to) - this.cellY(from)) * progress;
+        gc.drawImage(glyph(this.tile(from), this.size), x, y);
     }
 
+    /**
+     * Данный метод стирает клетку index, не задевая рамку поля.
+     *
+     * @param gc
+     * @param index
+     */
+    private void clearCell(GraphicsContext gc, int index) {
+        gc.clearRect(this.cellX(index) + 1, this.cellY(index) + 1, this.size - 2, this.size - 2);
+    }
 
+    /**
+     * Данный метод возвращает координату x левого края клетки index.
+     *
+     * @param index
+     * @return x
+     */
+    private int cellX(int index) {
+        return this.originX + (index % this.dimension()) * this.size;
+    }
+
+    /**
+     * Данный метод возвращает координату y верхнего края клетки index.
+     *
+     * @param index
+     * @return y
+     */
+    private int cellY(int index) {
+        return this.originY + (index / this.dimension()) * this.size;
+    }
 }
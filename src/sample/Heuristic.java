@@ -0,0 +1,84 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный интерфейс - оценка (эвристика) количества ходов от board до целевого board.
+ * \details Оценка должна быть допустимой, т.е. не больше настоящего расстояния, иначе A* и IDA*
+ * перестанут находить кратчайшее решение. Кроме полного вычисления, эвристика умеет
+ * пересчитывать оценку после сдвига одной клетки, используя оценку предыдущего board.
+ */
+public interface Heuristic {
+
+    /**
+     * Данный метод возвращает краткое название эвристики.
+     *
+     * @return название
+     */
+    String name();
+
+    /**
+     * \brief Данный метод вычисляет оценку для board полностью.
+     *
+     * @param board
+     * @return оценка
+     */
+    int estimate(Board board);
+
+    /**
+     * \brief Данный метод пересчитывает оценку после сдвига одной клетки.
+     * \details board - уже изменённый board: клетка tile переехала из ячейки from в ячейку to,
+     * а пустая клетка - из ячейки to в ячейку from.
+     *
+     * @param board board после хода
+     * @param estimate оценка board до хода
+     * @param tile сдвинутая клетка
+     * @param from ячейка, в которой клетка стояла до хода
+     * @param to ячейка, в которой клетка стоит после хода
+     * @return оценка board после хода
+     */
+    int update(Board board, int estimate, int tile, int from, int to);
+
+    /**
+     * \brief Данный метод возвращает эвристику по умолчанию для board заданной размерности:
+     * базы данных шаблонов, если они есть, иначе манхэтеновское число.
+     *
+     * @param dimension
+     * @return эвристика
+     */
+    static Heuristic defaultFor(int dimension) {
+        AdditivePatternDatabase patterns = AdditivePatternDatabase.forDimension(dimension);
+        if (patterns != null)
+            return patterns;
+        return new ManhattanHeuristic();
+    }
+
+    /**
+     * \brief Данный метод находит эвристику по имени: "manhattan", "linear", "walking" или "pdb".
+     *
+     * @param name имя или null - тогда эвристика по умолчанию
+     * @param dimension
+     * @return эвристика
+     * @throws IllegalArgumentException если имя неизвестно или эвристика не поддерживает данную размерность
+     */
+    static Heuristic forName(String name, int dimension) {
+        if (name == null)
+            return defaultFor(dimension);
+        switch (name.toLowerCase()) {
+            case "manhattan":
+                return new ManhattanHeuristic();
+            case "linear":
+                return new LinearConflictHeuristic();
+            case "walking":
+                return new WalkingDistanceHeuristic(dimension);
+            case "pdb":
+                AdditivePatternDatabase patterns = AdditivePatternDatabase.forDimension(dimension);
+                if (patterns == null)
+                    throw new IllegalArgumentException("No pattern databases for " + dimension + "x" + dimension);
+                return patterns;
+            default:
+                throw new IllegalArgumentException("Unknown heuristic: " + name);
+        }
+    }
+}
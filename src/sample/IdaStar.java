@@ -0,0 +1,182 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс отыскивает кратчайшее решение с помощью алгоритма IDA*
+ * (A* с итеративным углублением).
+ * \details Поиск в глубину ведётся на одном изменяемом board: ход выполняется
+ * и отменяется на месте (Board.apply() и Board.undo()), а оценка пересчитывается эвристикой на разницу
+ * для сдвинутой клетки. Ячейка хода берётся из таблицы ходов board, объекты в поиске не создаются.
+ * Память пропорциональна длине решения - хранится только текущий путь.
+ */
+public class IdaStar {
+    private static final int FOUND = -1;
+
+    private final Board board;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private int estimate;
+    private int[] path;
+    private int iterations = 0;
+    private long nodes = 0;
+    private long generated = 0;
+    private int maxDepth = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * \brief Данный конструктор копирует изначальный board и использует манхэтеновское число.
+     *
+     * @param initial
+     */
+    public IdaStar(Board initial) {
+        this(initial, new ManhattanHeuristic());
+    }
+
+    /**
+     * \brief Данный конструктор копирует изначальный board и использует эвристику heuristic.
+     *
+     * @param initial
+     * @param heuristic
+     */
+    public IdaStar(Board initial, Heuristic heuristic) {
+        this(initial, heuristic, new SearchBudget());
+    }
+
+    /**
+     * \brief Данный конструктор копирует изначальный board, использует эвристику heuristic
+     * и останавливает поиск по бюджету budget.
+     *
+     * @param initial
+     * @param heuristic
+     * @param budget
+     */
+    public IdaStar(Board initial, Heuristic heuristic, SearchBudget budget) {
+        this.board = new Board(initial);
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.estimate = heuristic.estimate(this.board);
+    }
+
+    /**
+     * \brief Данный метод запускает поиск и возвращает последовательность ходов пустой клетки.
+     * \details На каждой итерации поиск в глубину отсекает узлы, у которых moves + оценка
+     * больше текущей границы; следующая граница - наименьшее из отсечённых значений.
+     * Board должен быть решаемым, иначе поиск не завершится.
+     *
+     * @return ходы Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT
+     * @throws SearchAbortedException если поиск отменён или исчерпал бюджет
+     */
+    public int[] solve() {
+        long start = System.nanoTime();
+        int bound = this.estimate;
+        while (true) {
+            this.iterations++;
+            this.path = new int[bound];
+            int t = this.search(0, bound, -1);
+            if (t == FOUND)
+                break;
+            bound = t;
+        }
+        this.elapsedNanos = System.nanoTime() - start;
+        return this.path;
+    }
+
+    /**
+     * \brief Данный метод выполняет поиск в глубину с ограничением bound.
+     *
+     * @param moves количество сделанных ходов
+     * @param bound граница текущей итерации
+     * @param previous предыдущий ход, обратный ему ход не рассматривается
+     *
+     * @return FOUND или наименьшее значение moves + оценка за границей
+     */
+    private int search(int moves, int bound, int previous) {
+        int f = moves + this.estimate;
+        if (f > bound)
+            return f;
+        if (this.board.isGoal()) {
+            if (moves < this.path.length) {
+                int[] exact = new int[moves];
+                System.arraycopy(this.path, 0, exact, 0, moves);
+                this.path = exact;
+            }
+            return FOUND;
+        }
+        if (moves > this.maxDepth)
+            this.maxDepth = moves;
+        if ((++this.nodes & (SearchBudget.CHECK_INTERVAL - 1)) == 0)
+            this.budget.check(this.nodes, moves, bound);
+        int min = Integer.MAX_VALUE;
+        int parentEstimate = this.estimate;
+        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+            if (direction == (previous ^ 1))
+                continue;
+            int to = this.board.target(direction);
+            if (to < 0)
+                continue;
+            int from = this.board.blankIndex();
+            int tile = this.board.tile(to);
+            this.board.apply(direction);
+            this.generated++;
+            this.estimate = this.heuristic.update(this.board, parentEstimate, tile, to, from);
+            this.path[moves] = direction;
+            int t = this.search(moves + 1, bound, direction);
+            if (t == FOUND)
+                return FOUND;
+            this.board.undo(direction);
+            this.estimate = parentEstimate;
+            if (t < min)
+                min = t;
+        }
+        return min;
+    }
+
+    /**
+     * Данный метод возвращает количество итераций углубления.
+     *
+     * @return this.iterations
+     */
+    public int iterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Данный метод возвращает количество раскрытых узлов за все итерации.
+     *
+     * @return this.nodes
+     */
+    public long nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Данный метод возвращает количество сгенерированных узлов за все итерации.
+     *
+     * @return this.generated
+     */
+    public long generated() {
+        return this.generated;
+    }
+
+    /**
+     * Данный метод возвращает наибольшую глубину раскрытого узла.
+     *
+     * @return this.maxDepth
+     */
+    public int maxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Данный метод возвращает скорость поиска - количество раскрытых узлов в секунду.
+     *
+     * @return nodes / seconds
+     */
+    public double nodesPerSecond() {
+        if (this.elapsedNanos == 0)
+            return 0;
+        return this.nodes * 1e9 / this.elapsedNanos;
+    }
+}
@@ -0,0 +1,151 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - приоритетная очередь номеров узлов int с целочисленным приоритетом f = moves + h,
+ * устроенная как массив корзин.
+ * \details Приоритеты - небольшие целые числа, поэтому вместо двоичной кучи узлы раскладываются
+ * по корзинам [f][h]. Из корзин с наименьшим f первым извлекается узел с наименьшим h
+ * (т.е. ближайший к цели), а внутри одной корзины - последний добавленный (LIFO).
+ * Вставка и извлечение выполняются за O(1) (амортизированно).
+ * Номера хранятся в примитивных массивах, поэтому вставка не создаёт объектов.
+ * После delMin() приоритет и оценка извлечённого узла доступны через lastPriority() и lastEstimate(),
+ * так что хранить их в самом узле не нужно: количество ходов до узла равно f - h.
+ */
+public class IntBucketQueue {
+    private int[][][] stacks = new int[64][][];
+    private int[][] counts = new int[64][];
+    private int[] layerSizes = new int[64];
+    private int size = 0;
+    private int minF = Integer.MAX_VALUE;
+    private int lastF = -1;
+    private int lastH = -1;
+
+    /**
+     * \brief Данный метод добавляет узел с приоритетом f и оценкой h (0 <= h <= f).
+     *
+     * @param item
+     * @param f
+     * @param h
+     */
+    public void insert(int item, int f, int h) {
+        if (f >= this.stacks.length)
+            this.growLayers(f);
+        if (this.stacks[f] == null) {
+            this.stacks[f] = new int[f + 1][];
+            this.counts[f] = new int[f + 1];
+        }
+        int[] stack = this.stacks[f][h];
+        int count = this.counts[f][h];
+        if (stack == null) {
+            stack = new int[16];
+            this.stacks[f][h] = stack;
+        } else if (count == stack.length) {
+            int[] bigger = new int[2 * count];
+            System.arraycopy(stack, 0, bigger, 0, count);
+            stack = bigger;
+            this.stacks[f][h] = stack;
+        }
+        stack[count] = item;
+        this.counts[f][h] = count + 1;
+        this.layerSizes[f]++;
+        this.size++;
+        if (f < this.minF)
+            this.minF = f;
+    }
+
+    /**
+     * \brief Данный метод извлекает узел с наименьшим f, при равных f - с наименьшим h.
+     *
+     * @return узел или -1, если очередь пуста
+     */
+    public int delMin() {
+        if (this.size == 0)
+            return -1;
+        while (this.layerSizes[this.minF] == 0)
+            this.minF++;
+        int f = this.minF;
+        int[] layer = this.counts[f];
+        int h = 0;
+        while (layer[h] == 0)
+            h++;
+        int count = --layer[h];
+        int item = this.stacks[f][h][count];
+        this.layerSizes[f]--;
+        this.size--;
+        this.lastF = f;
+        this.lastH = h;
+        return item;
+    }
+
+    /**
+     * Данный метод возвращает приоритет f узла, извлечённого последним вызовом delMin().
+     *
+     * @return this.lastF
+     */
+    public int lastPriority() {
+        return this.lastF;
+    }
+
+    /**
+     * Данный метод возвращает оценку h узла, извлечённого последним вызовом delMin().
+     *
+     * @return this.lastH
+     */
+    public int lastEstimate() {
+        return this.lastH;
+    }
+
+    /**
+     * Данный метод возвращает наименьший приоритет f среди узлов очереди.
+     *
+     * @return f или Integer.MAX_VALUE, если очередь пуста
+     */
+    public int minPriority() {
+        if (this.size == 0)
+            return Integer.MAX_VALUE;
+        while (this.layerSizes[this.minF] == 0)
+            this.minF++;
+        return this.minF;
+    }
+
+    /**
+     * Данный метод возвращает количество узлов в очереди.
+     *
+     * @return this.size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Данный метод проверяет, пуста ли очередь.
+     *
+     * @return true or false
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Данный метод увеличивает массив слоёв так, чтобы в нём поместился слой f.
+     *
+     * @param f
+     */
+    private void growLayers(int f) {
+        int capacity = this.stacks.length;
+        while (capacity <= f)
+            capacity *= 2;
+        int[][][] stacks = new int[capacity][][];
+        int[][] counts = new int[capacity][];
+        int[] layerSizes = new int[capacity];
+        System.arraycopy(this.stacks, 0, stacks, 0, this.stacks.length);
+        System.arraycopy(this.counts, 0, counts, 0, this.counts.length);
+        System.arraycopy(this.layerSizes, 0, layerSizes, 0, this.layerSizes.length);
+        this.stacks = stacks;
+        this.counts = counts;
+        this.layerSizes = layerSizes;
+    }
+}
@@ -0,0 +1,122 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - манхэтеновское число с поправкой на линейные конфликты.
+ * \details Две клетки находятся в линейном конфликте, если обе стоят в своей целевой строке (столбце),
+ * но в обратном порядке: одна из них должна уйти из строки и вернуться, что добавляет 2 хода.
+ * Для каждой строки и столбца считается наименьшее количество клеток, которые нужно убрать,
+ * чтобы конфликтов не осталось, поэтому оценка остаётся допустимой.
+ */
+public class LinearConflictHeuristic implements Heuristic {
+    /**
+     * \brief Рабочий массив conflicts() для каждого потока: целевые ячейки клеток строки и длины подпоследовательностей.
+     * \details Экземпляр эвристики может использоваться несколькими потоками (ParallelSolver), поэтому массив
+     * не может быть полем экземпляра; он растёт до 2 * n при первом board размерности n.
+     */
+    private static final ThreadLocal<int[]> SCRATCH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[32];
+        }
+    };
+
+    @Override
+    public String name() {
+        return "linear conflict";
+    }
+
+    @Override
+    public int estimate(Board board) {
+        int[] scratch = scratch(board.dimension());
+        int result = board.getManhattanNumber();
+        for (int line = 0; line < board.dimension(); line++) {
+            result += 2 * conflicts(board, line, false, 0, -1, -1, scratch);
+            result += 2 * conflicts(board, line, true, 0, -1, -1, scratch);
+        }
+        return result;
+    }
+
+    /**
+     * \brief Данный метод пересчитывает оценку после сдвига клетки.
+     * \details При сдвиге вдоль строки порядок клеток в этой строке не меняется,
+     * поэтому пересчитываются только два столбца, которые покинула и в которую пришла клетка
+     * (и наоборот для сдвига вдоль столбца). Конфликты до хода считаются по тому же board,
+     * в котором клетка мысленно возвращена на место.
+     */
+    @Override
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        int n = board.dimension();
+        int[] scratch = scratch(n);
+        boolean vertical = from % n == to % n;
+        boolean column = !vertical;
+        int a = vertical ? from / n : from % n;
+        int b = vertical ? to / n : to % n;
+        int before = conflicts(board, a, column, tile, from, to, scratch)
+                + conflicts(board, b, column, tile, from, to, scratch);
+        int after = conflicts(board, a, column, 0, -1, -1, scratch) + conflicts(board, b, column, 0, -1, -1, scratch);
+        return estimate + ManhattanHeuristic.distance(tile, to, n) - ManhattanHeuristic.distance(tile, from, n)
+                + 2 * (after - before);
+    }
+
+    /**
+     * \brief Данный метод считает, сколько клеток строки или столбца нужно убрать, чтобы не осталось конфликтов.
+     * \details Оставшиеся клетки должны стоять в порядке целевых ячеек, поэтому ответ - количество клеток
+     * минус длина наибольшей возрастающей подпоследовательности их целевых ячеек.
+     * Если movedCell >= 0, считается, что в ячейке movedCell стоит клетка moved,
+     * а ячейка blankCell пуста, - так описывается board до хода.
+     *
+     * @param board
+     * @param line номер строки или столбца
+     * @param column true - столбец, false - строка
+     * @param moved
+     * @param movedCell
+     * @param blankCell
+     * @param scratch рабочий массив не короче 2 * n: целевые ячейки в [0, n), длины в [n, 2n)
+     * @return количество убираемых клеток
+     */
+    private static int conflicts(Board board, int line, boolean column, int moved, int movedCell, int blankCell,
+                                 int[] scratch) {
+        int n = board.dimension();
+        int[] goals = scratch;
+        int count = 0;
+        for (int k = 0; k < n; k++) {
+            int cell = column ? k * n + line : line * n + k;
+            int tile = cell == movedCell ? moved : cell == blankCell ? 0 : board.tile(cell);
+            if (tile == 0)
+                continue;
+            int goalLine = column ? (tile - 1) % n : (tile - 1) / n;
+            if (goalLine == line)
+                goals[count++] = column ? (tile - 1) / n : (tile - 1) % n;
+        }
+        if (count < 2)
+            return 0;
+        int[] longest = scratch;
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            longest[n + i] = 1;
+            for (int j = 0; j < i; j++)
+                if (goals[j] < goals[i] && longest[n + j] + 1 > longest[n + i])
+                    longest[n + i] = longest[n + j] + 1;
+            best = Math.max(best, longest[n + i]);
+        }
+        return count - best;
+    }
+
+    /**
+     * Данный метод возвращает рабочий массив текущего потока длиной не меньше 2 * n.
+     *
+     * @param n размерность board
+     * @return SCRATCH текущего потока
+     */
+    private static int[] scratch(int n) {
+        int[] scratch = SCRATCH.get();
+        if (scratch.length < 2 * n) {
+            scratch = new int[2 * n];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+}
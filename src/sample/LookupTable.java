@@ -0,0 +1,256 @@
+package sample;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - полная таблица решений для маленьких board (2x2 и 3x3).
+ * \details Для каждой перестановки клеток хранится один байт: (расстояние до цели << 2) | лучший ход пустой клетки,
+ * для нерешаемых перестановок - UNREACHABLE. Номер перестановки - её код Лемера (PatternDatabase.rank() по всем
+ * клеткам, включая пустую), поэтому для 3x3 таблица занимает 9! = 362880 байт, а оптимальное решение
+ * получается спуском по лучшим ходам без всякого поиска.
+ *
+ * Таблица строится обратным поиском в ширину от цели (generate()) и хранится в файле "table-N.bin"
+ * в каталоге баз шаблонов (свойство pdb.dir), который отображается в память. Если файла нет,
+ * таблица строится в памяти при первом обращении (для 3x3 - доли секунды).
+ */
+public class LookupTable {
+    private static final int MAGIC = 0x4C4B5431;
+    private static final int HEADER = 64;
+    private static final int UNREACHABLE = 0xFF;
+    private static final Map<Integer, LookupTable> LOADED = new HashMap<Integer, LookupTable>();
+
+    private final int dimension;
+    private final ByteBuffer data;
+
+    /**
+     * Данный конструктор создаёт таблицу поверх отображённого в память файла или массива.
+     *
+     * @param dimension
+     * @param data байты таблицы
+     */
+    private LookupTable(int dimension, ByteBuffer data) {
+        this.dimension = dimension;
+        this.data = data;
+    }
+
+    /**
+     * \brief Данный метод возвращает таблицу для board заданной размерности.
+     * \details Результат запоминается, поэтому файл отображается в память (или таблица строится) один раз на процесс.
+     *
+     * @param dimension
+     * @return таблица или null, если для такой размерности таблиц не бывает
+     */
+    public static synchronized LookupTable forDimension(int dimension) {
+        if (dimension < 2 || dimension > 3)
+            return null;
+        if (LOADED.containsKey(dimension))
+            return LOADED.get(dimension);
+        File dir = new File(System.getProperty("pdb.dir", "pdb"));
+        LookupTable result = null;
+        try {
+            result = open(dimension, dir);
+        } catch (IOException e) {
+            System.err.println("Lookup table ignored: " + e.getMessage());
+        }
+        if (result == null)
+            result = new LookupTable(dimension, ByteBuffer.wrap(build(dimension)));
+        LOADED.put(dimension, result);
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает имя файла таблицы.
+     *
+     * @param dimension
+     * @return например "table-3.bin"
+     */
+    public static String fileName(int dimension) {
+        return "table-" + dimension + ".bin";
+    }
+
+    /**
+     * \brief Данный метод отображает файл таблицы в память.
+     *
+     * @param dimension
+     * @param dir каталог с файлами баз
+     * @return таблица или null, если файла нет
+     * @throws IOException если файл повреждён или не читается
+     */
+    public static LookupTable open(int dimension, File dir) throws IOException {
+        File file = new File(dir, fileName(dimension));
+        if (!file.isFile())
+            return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = PatternDatabase.permutations(dimension * dimension, dimension * dimension);
+            if (channel.size() != HEADER + size)
+                throw new IOException("Unexpected size of " + file);
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != dimension)
+                throw new IOException("Bad header in " + file);
+            return new LookupTable(dimension, channel.map(FileChannel.MapMode.READ_ONLY, HEADER, size));
+        }
+    }
+
+    /**
+     * Данный метод возвращает размерность board таблицы.
+     *
+     * @return this.dimension
+     */
+    public int dimension() {
+        return this.dimension;
+    }
+
+    /**
+     * \brief Данный метод находит байт таблицы для board.
+     *
+     * @param board
+     * @param positions рабочий массив из N^2 элементов
+     * @return (расстояние << 2) | ход или UNREACHABLE
+     */
+    private int entry(Board board, int[] positions) {
+        int cells = this.dimension * this.dimension;
+        for (int i = 0; i < cells; i++)
+            positions[board.tile(i)] = i;
+        return this.data.get((int) PatternDatabase.rank(positions, cells, cells)) & 0xFF;
+    }
+
+    /**
+     * Данный метод возвращает наименьшее количество ходов до цели.
+     *
+     * @param board
+     * @return расстояние или -1, если board не решаем
+     */
+    public int distance(Board board) {
+        int entry = this.entry(board, new int[this.dimension * this.dimension]);
+        return entry == UNREACHABLE ? -1 : entry >>> 2;
+    }
+
+    /**
+     * \brief Данный метод находит оптимальное решение спуском по таблице.
+     * \details На каждом шаге делается лучший ход из таблицы, и расстояние уменьшается на единицу.
+     *
+     * @param initial
+     * @return ходы пустой клетки или null, если board не решаем
+     */
+    public int[] path(Board initial) {
+        int[] positions = new int[this.dimension * this.dimension];
+        Board board = new Board(initial);
+        int entry = this.entry(board, positions);
+        if (entry == UNREACHABLE)
+            return null;
+        int[] path = new int[entry >>> 2];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = entry & 3;
+            board.slide(board.target(path[i]));
+            entry = this.entry(board, positions);
+        }
+        return path;
+    }
+
+    /**
+     * \brief Данный метод строит таблицу обратным поиском в ширину от цели.
+     * \details Состояние - положения клеток (индекс - значение, 0 - пустая клетка), в очереди хранятся их номера.
+     * Соседнее состояние, впервые найденное ходом direction, получает расстояние на единицу больше
+     * и лучший ход direction ^ 1, возвращающий к уже найденному состоянию.
+     *
+     * @param dimension
+     * @return байты таблицы
+     */
+    static byte[] build(int dimension) {
+        int cells = dimension * dimension;
+        int size = (int) PatternDatabase.permutations(cells, cells);
+        byte[] table = new byte[size];
+        Arrays.fill(table, (byte) UNREACHABLE);
+        int[] queue = new int[size / 2];
+        int[] positions = new int[cells];
+        for (int value = 1; value < cells; value++)
+            positions[value] = value - 1;
+        positions[0] = cells - 1;
+        int goal = (int) PatternDatabase.rank(positions, cells, cells);
+        table[goal] = 0;
+        queue[0] = goal;
+        int head = 0;
+        int tail = 1;
+        int[] tiles = new int[cells];
+        int[] moves = Board.moveTable(dimension);
+        while (head < tail) {
+            int rank = queue[head++];
+            int depth = (table[rank] & 0xFF) >>> 2;
+            PatternDatabase.unrank(rank, cells, cells, positions);
+            for (int value = 0; value < cells; value++)
+                tiles[positions[value]] = value;
+            int blank = positions[0];
+            for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                int to = moves[(blank << 2) | direction];
+                if (to < 0)
+                    continue;
+                int tile = tiles[to];
+                positions[tile] = blank;
+                positions[0] = to;
+                int next = (int) PatternDatabase.rank(positions, cells, cells);
+                positions[tile] = to;
+                positions[0] = blank;
+                if (table[next] != (byte) UNREACHABLE)
+                    continue;
+                table[next] = (byte) (((depth + 1) << 2) | (direction ^ 1));
+                queue[tail++] = next;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * \brief Данный метод строит таблицу и записывает её в файл.
+     *
+     * @param dimension
+     * @param file
+     * @throws IOException
+     */
+    public static void generate(int dimension, File file) throws IOException {
+        byte[] table = build(dimension);
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(dimension);
+        header.clear();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(table);
+            while (body.hasRemaining())
+                channel.write(body);
+        }
+    }
+
+    /**
+     * \brief Данный метод строит файлы таблиц в каталоге pdb.dir.
+     * \details Пример: java sample.LookupTable (таблицы 2x2 и 3x3) или java sample.LookupTable 3
+     *
+     * @param args необязательная размерность
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        File dir = new File(System.getProperty("pdb.dir", "pdb"));
+        dir.mkdirs();
+        int from = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int to = args.length > 0 ? from : 3;
+        for (int dimension = from; dimension <= to; dimension++) {
+            File file = new File(dir, fileName(dimension));
+            long start = System.nanoTime();
+            generate(dimension, file);
+            System.out.printf("%s: %d entries, %.1f s%n", file,
+                    PatternDatabase.permutations(dimension * dimension, dimension * dimension),
+                    (System.nanoTime() - start) / 1e9);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - манхэтеновское число как эвристика.
+ * \details Board сам поддерживает манхэтеновское число при каждом сдвиге,
+ * поэтому оценка берётся из board за O(1).
+ */
+public class ManhattanHeuristic implements Heuristic {
+
+    @Override
+    public String name() {
+        return "manhattan";
+    }
+
+    @Override
+    public int estimate(Board board) {
+        return board.getManhattanNumber();
+    }
+
+    @Override
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        return estimate + distance(tile, to, board.dimension()) - distance(tile, from, board.dimension());
+    }
+
+    /**
+     * Данный метод возвращает манхэтеновское расстояние от ячейки cell до целевой ячейки клетки tile.
+     *
+     * @param tile
+     * @param cell
+     * @param dimension
+     * @return расстояние
+     */
+    public static int distance(int tile, int cell, int dimension) {
+        int goal = tile - 1;
+        return Math.abs(goal / dimension - cell / dimension) + Math.abs(goal % dimension - cell % dimension);
+    }
+}
@@ -0,0 +1,128 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - хранилище узлов дерева поиска в параллельных примитивных массивах.
+ * \details Узел - это номер в хранилище. Для узла хранятся упакованные клетки board (stride чисел long,
+ * для board до 4x4 - одно) и связь с родителем: номер родителя, сдвинутый на 2 бита, плюс ход
+ * (Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT), которым узел получен из родителя. Для 4x4 это 12 байт на узел
+ * вместо объекта узла и объекта board. Количество ходов и оценка в узле не хранятся - их даёт IntBucketQueue.
+ * Board узла восстанавливается методом load(), решение - по цепочке ходов методом path().
+ */
+public class NodeArena {
+    private final int stride;
+    private long[] states;
+    private int[] links;
+    private int size = 0;
+
+    /**
+     * @param stride количество чисел long на состояние (Board.stateLength())
+     */
+    public NodeArena(int stride) {
+        this.stride = stride;
+        this.states = new long[1024 * stride];
+        this.links = new int[1024];
+    }
+
+    /**
+     * \brief Данный метод добавляет узел.
+     *
+     * @param board board узла
+     * @param parent номер родителя или -1 для корня
+     * @param move ход, которым board получен из родителя
+     * @return номер узла
+     */
+    public int add(Board board, int parent, int move) {
+        if (this.size == this.links.length)
+            this.grow();
+        int index = this.size++;
+        board.writeState(this.states, index * this.stride);
+        this.links[index] = (parent << 2) | move;
+        return index;
+    }
+
+    /**
+     * Данный метод загружает в board состояние узла index.
+     *
+     * @param index
+     * @param board board той же размерности, из которого достижим узел
+     */
+    public void load(int index, Board board) {
+        board.readState(this.states, index * this.stride);
+    }
+
+    /**
+     * Данный метод возвращает номер родителя узла.
+     *
+     * @param index
+     * @return номер или -1 для корня
+     */
+    public int parent(int index) {
+        return this.links[index] >> 2;
+    }
+
+    /**
+     * Данный метод возвращает ход, которым узел получен из родителя.
+     *
+     * @param index
+     * @return направление
+     */
+    public int move(int index) {
+        return this.links[index] & 3;
+    }
+
+    /**
+     * \brief Данный метод восстанавливает ходы от корня до узла index.
+     *
+     * @param index
+     * @return ходы Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT
+     */
+    public int[] path(int index) {
+        int length = 0;
+        for (int i = index; this.parent(i) >= 0; i = this.parent(i))
+            length++;
+        int[] path = new int[length];
+        for (int i = index; this.parent(i) >= 0; i = this.parent(i))
+            path[--length] = this.move(i);
+        return path;
+    }
+
+    /**
+     * Данный метод возвращает количество узлов.
+     *
+     * @return this.size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Данный метод возвращает количество байт, которое занимает один узел.
+     *
+     * @return 8 * stride + 4
+     */
+    public int bytesPerNode() {
+        return 8 * this.stride + 4;
+    }
+
+    /**
+     * Данный метод увеличивает массивы вдвое.
+     *
+     * @throws IllegalStateException если номер узла больше не помещается в связь (2^29 узлов)
+     * или состояния больше не помещаются в один массив long (для больших board это наступает раньше)
+     */
+    private void grow() {
+        int capacity = 2 * this.links.length;
+        long length = (long) capacity * this.stride;
+        if (this.links.length >= 1 << 29 || length > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Node arena is full: " + this.size + " nodes");
+        long[] states = new long[(int) length];
+        int[] links = new int[capacity];
+        System.arraycopy(this.states, 0, states, 0, this.states.length);
+        System.arraycopy(this.links, 0, links, 0, this.links.length);
+        this.states = states;
+        this.links = links;
+    }
+}
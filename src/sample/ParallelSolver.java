@@ -0,0 +1,524 @@
+package sample;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс отыскивает кратчайшее решение параллельным алгоритмом HDA*
+ * (hash-distributed A*).
+ * \details Каждый board принадлежит одному потоку - по хэшу board. У каждого потока свои
+ * открытая очередь IntBucketQueue, таблица closed и хранилище узлов NodeArena, поэтому блокировок при поиске нет.
+ * Сгенерированный сосед отправляется потоку-владельцу пачками через неблокирующие очереди ConcurrentLinkedQueue;
+ * пачка - массив long, в котором на каждый узел записаны упакованные клетки board, связь с родителем,
+ * количество ходов и оценка. Узлы ссылаются на родителей в хранилищах других потоков, поэтому связь хранит
+ * общий номер узла: номер в хранилище потока, умноженный на количество потоков, плюс номер потока.
+ *
+ * Найденное решение становится верхней границей; поиск продолжается, пока у какого-либо потока
+ * есть узлы с приоритетом меньше границы или пока в пути есть сообщения. Для этого счётчик work
+ * хранит количество активных потоков плюс количество отправленных, но ещё не обработанных пачек;
+ * когда он равен нулю, найденное решение - кратчайшее. Решение восстанавливается по хранилищам всех потоков
+ * после их завершения.
+ */
+public class ParallelSolver {
+    private static final int BATCH = 64;
+    private static final int FLUSH_INTERVAL = 64;
+
+    private final Board initial;
+    private final Heuristic heuristic;
+    private final SearchBudget budget;
+    private final Worker[] workers;
+    private final int width;
+    private final AtomicLong work = new AtomicLong();
+    private volatile boolean done = false;
+    private volatile boolean aborted = false;
+    private volatile Throwable failure = null;
+    private volatile int bestCost = Integer.MAX_VALUE;
+    private int best = -1;
+    private long elapsedNanos = 0;
+
+    /**
+     * \brief Данный конструктор готовит поиск для решаемого board.
+     * \details Эвристика вызывается из всех потоков одновременно, поэтому она не должна хранить
+     * изменяемого состояния (все эвристики пакета, кроме TimedHeuristic, этому требованию отвечают).
+     *
+     * @param initial
+     * @param threads количество потоков
+     * @param heuristic
+     */
+    public ParallelSolver(Board initial, int threads, Heuristic heuristic) {
+        this(initial, threads, heuristic, new SearchBudget());
+    }
+
+    /**
+     * \brief Данный конструктор готовит поиск, который останавливается по бюджету budget.
+     * \details Бюджет проверяют все потоки по общему количеству раскрытых узлов;
+     * о ходе поиска сообщает поток 0 (размер открытого списка - его собственный).
+     *
+     * @param initial
+     * @param threads количество потоков
+     * @param heuristic
+     * @param budget
+     */
+    public ParallelSolver(Board initial, int threads, Heuristic heuristic, SearchBudget budget) {
+        this.initial = initial;
+        this.heuristic = heuristic;
+        this.budget = budget;
+        this.width = initial.stateLength() + 2;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            this.workers[i] = new Worker(i);
+    }
+
+    /**
+     * \brief Данный метод запускает потоки, ждёт их завершения и возвращает последовательность ходов.
+     * \details Если вызывающий поток прерван, поиск останавливается, но метод всё равно дожидается всех потоков
+     * поиска (они завершаются по флагу done), чтобы ни один из них не продолжал менять решение, а затем
+     * восстанавливает флаг прерывания и выбрасывает SearchAbortedException.
+     *
+     * @return ходы Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT
+     * @throws SearchAbortedException если поиск отменён, прерван или исчерпал бюджет
+     */
+    public int[] solve() {
+        if (this.initial.isGoal())
+            return new int[0];
+        long start = System.nanoTime();
+        long[] root = new long[this.width];
+        this.initial.writeState(root, 0);
+        root[this.width - 2] = -1 << 2;
+        root[this.width - 1] = this.heuristic.estimate(this.initial);
+        this.work.set(this.workers.length + 1);
+        this.workers[this.owner(this.initial)].inbox.add(root);
+        Thread[] threads = new Thread[this.workers.length];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(this.workers[i], "hda-" + i);
+            threads[i].start();
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    this.done = true;
+                }
+            }
+        }
+        this.elapsedNanos = System.nanoTime() - start;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new SearchAbortedException("interrupted", this.nodes());
+        }
+        if (this.failure instanceof Error)
+            throw (Error) this.failure;
+        if (this.failure != null)
+            throw (RuntimeException) this.failure;
+        if (this.aborted)
+            throw new SearchAbortedException(this.budget.reason(this.nodes()), this.nodes());
+        if (this.best < 0)
+            throw new SearchAbortedException("no solution found", this.nodes());
+        return this.path();
+    }
+
+    /**
+     * \brief Данный метод восстанавливает ходы пустой клетки по цепочке узлов решения.
+     * \details Узлы цепочки лежат в хранилищах разных потоков; общий номер узла g - это узел g / threads
+     * в хранилище потока g % threads.
+     *
+     * @return ходы
+     */
+    private int[] path() {
+        int[] path = new int[this.bestCost];
+        int threads = this.workers.length;
+        for (int node = this.best, i = path.length; i > 0; ) {
+            NodeArena arena = this.workers[node % threads].arena;
+            path[--i] = arena.move(node / threads);
+            node = arena.parent(node / threads);
+        }
+        return path;
+    }
+
+    /**
+     * Данный метод возвращает номер потока - владельца board.
+     *
+     * @param board
+     * @return номер потока
+     */
+    private int owner(Board board) {
+        int h = board.hashCode() * 0x9E3779B9;
+        return (int) (((h ^ (h >>> 16)) & 0xFFFFFFFFL) % this.workers.length);
+    }
+
+    /**
+     * Данный метод запоминает решение, если оно короче найденного ранее.
+     *
+     * @param goal общий номер узла цели
+     * @param moves длина решения
+     */
+    private synchronized void offer(int goal, int moves) {
+        if (moves < this.bestCost) {
+            this.best = goal;
+            this.bestCost = moves;
+        }
+    }
+
+    /**
+     * Данный метод возвращает количество раскрытых узлов во всех потоках.
+     *
+     * @return сумма
+     */
+    public long nodes() {
+        long result = 0;
+        for (Worker worker : this.workers)
+            result += worker.expanded;
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает количество повторных board, отброшенных во всех потоках.
+     *
+     * @return сумма
+     */
+    public long duplicates() {
+        long result = 0;
+        for (Worker worker : this.workers)
+            result += worker.duplicates;
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает количество сгенерированных узлов во всех потоках.
+     *
+     * @return сумма
+     */
+    public long generated() {
+        long result = 0;
+        for (Worker worker : this.workers)
+            result += worker.generated;
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает сумму наибольших размеров открытых очередей потоков.
+     *
+     * @return сумма
+     */
+    public int peakOpen() {
+        int result = 0;
+        for (Worker worker : this.workers)
+            result += worker.peakOpen;
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает количество байт, выделенных потоками поиска.
+     *
+     * @return сумма или -1, если JVM не умеет их считать
+     */
+    public long allocatedBytes() {
+        long result = 0;
+        for (Worker worker : this.workers) {
+            if (worker.allocatedBytes < 0)
+                return -1;
+            result += worker.allocatedBytes;
+        }
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает скорость поиска - количество раскрытых узлов в секунду.
+     *
+     * @return nodes / seconds
+     */
+    public double nodesPerSecond() {
+        if (this.elapsedNanos == 0)
+            return 0;
+        return this.nodes() * 1e9 / this.elapsedNanos;
+    }
+
+    /**
+     * Данный метод возвращает время поиска в наносекундах.
+     *
+     * @return this.elapsedNanos
+     */
+    public long elapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * \brief Данный класс - поток поиска, владеющий частью пространства состояний.
+     * \details Раскрываемый узел загружается в собственный board потока и сдвигается на месте,
+     * поэтому при раскрытии объекты не создаются; состояния соседей сразу пишутся в пачку владельца.
+     */
+    private final class Worker implements Runnable {
+        private final int id;
+        private final ConcurrentLinkedQueue<long[]> inbox = new ConcurrentLinkedQueue<long[]>();
+        private final IntBucketQueue open = new IntBucketQueue();
+        private final StateTable closed = new StateTable(initial.dimension());
+        private final NodeArena arena = new NodeArena(initial.stateLength());
+        private final Board board = new Board(initial);
+        private final long[][] outbox = new long[workers.length][BATCH * width];
+        private final int[] outboxSize = new int[workers.length];
+        private long expanded = 0;
+        private long duplicates = 0;
+        private long generated = 0;
+        private int peakOpen = 0;
+        private long allocatedBytes = -1;
+
+        private Worker(int id) {
+            this.id = id;
+        }
+
+        /**
+         * \brief Данный метод запускает поиск потока.
+         * \details Если поток упал (например, OutOfMemoryError), останавливаются все потоки: иначе остальные
+         * ждали бы его пачек вечно; ошибку заново выбрасывает solve().
+         */
+        @Override
+        public void run() {
+            try {
+                this.search();
+            } catch (Throwable e) {
+                failure = e;
+                done = true;
+            }
+        }
+
+        /**
+         * \brief Данный метод - основной цикл потока.
+         * \details Поток активен, пока у него есть узлы с приоритетом меньше границы.
+         * Становясь неактивным, он отправляет все накопленные пачки и уменьшает счётчик work;
+         * получив пачку в неактивном состоянии, сначала снова увеличивает его.
+         */
+        private void search() {
+            long allocated = SearchMetrics.threadAllocatedBytes();
+            boolean active = true;
+            int sinceFlush = 0;
+            while (!done) {
+                long[] batch = this.inbox.poll();
+                if (batch != null) {
+                    if (!active) {
+                        work.incrementAndGet();
+                        active = true;
+                    }
+                    for (int offset = 0; offset < batch.length; offset += width) {
+                        this.board.readState(batch, offset);
+                        long costs = batch[offset + width - 1];
+                        this.accept((int) batch[offset + width - 2], (int) (costs >>> 32), (int) costs);
+                    }
+                    work.decrementAndGet();
+                    continue;
+                }
+                if (this.open.minPriority() < bestCost) {
+                    this.expand(this.open.delMin());
+                    if ((this.expanded & (SearchBudget.CHECK_INTERVAL - 1)) == 0)
+                        this.checkBudget();
+                    if (++sinceFlush >= FLUSH_INTERVAL) {
+                        this.flushAll();
+                        sinceFlush = 0;
+                    }
+                    continue;
+                }
+                if (active) {
+                    this.flushAll();
+                    active = false;
+                    work.decrementAndGet();
+                }
+                if (work.get() == 0) {
+                    done = true;
+                    break;
+                }
+                LockSupport.parkNanos(1000);
+            }
+            if (allocated >= 0)
+                this.allocatedBytes = SearchMetrics.threadAllocatedBytes() - allocated;
+        }
+
+        /**
+         * Данный метод останавливает все потоки, если бюджет исчерпан; поток 0 также сообщает ход поиска.
+         */
+        private void checkBudget() {
+            long nodes = nodes();
+            if (budget.exceeded(nodes)) {
+                aborted = true;
+                done = true;
+            } else if (this.id == 0) {
+                budget.progress(nodes, this.open.size(), this.open.minPriority());
+            }
+        }
+
+        /**
+         * \brief Данный метод добавляет узел с состоянием this.board в открытую очередь,
+         * если до board не найден путь короче.
+         *
+         * @param link общий номер родителя, сдвинутый на 2 бита, плюс ход из него
+         * @param moves количество ходов до узла
+         * @param estimate оценка узла
+         * @throws IllegalStateException если общий номер узла больше не помещается в связь
+         */
+        private void accept(int link, int moves, int estimate) {
+            if (moves + estimate >= bestCost)
+                return;
+            int known = this.closed.get(this.board);
+            if (known != StateTable.NOT_FOUND && known <= moves) {
+                this.duplicates++;
+                return;
+            }
+            this.closed.put(this.board.isCompact() ? this.board : new Board(this.board), moves);
+            int node = this.add(link);
+            this.open.insert(node, moves + estimate, estimate);
+            if (this.open.size() > this.peakOpen)
+                this.peakOpen = this.open.size();
+        }
+
+        /**
+         * Данный метод кладёт this.board в хранилище потока.
+         *
+         * @param link общий номер родителя, сдвинутый на 2 бита, плюс ход из него
+         * @return номер узла в хранилище
+         * @throws IllegalStateException если общий номер узла больше не помещается в связь (2^29 узлов)
+         */
+        private int add(int link) {
+            if ((long) this.arena.size() * workers.length >= 1 << 29)
+                throw new IllegalStateException("Node arena is full: " + this.arena.size() + " nodes");
+            return this.arena.add(this.board, link >> 2, link & 3);
+        }
+
+        /**
+         * \brief Данный метод раскрывает узел и рассылает соседей их владельцам.
+         * \details Ход, возвращающий в родителя, пропускается. Сосед-цель сразу кладётся в хранилище этого потока
+         * и становится решением, если оно короче найденного.
+         *
+         * @param node номер узла в хранилище потока
+         */
+        private void expand(int node) {
+            int estimate = this.open.lastEstimate();
+            int moves = this.open.lastPriority() - estimate;
+            this.arena.load(node, this.board);
+            if (this.closed.get(this.board) < moves) {
+                this.duplicates++;
+                return;
+            }
+            this.expanded++;
+            int back = this.arena.parent(node) < 0 ? -1 : this.arena.move(node) ^ 1;
+            int self = node * workers.length + this.id;
+            int from = this.board.blankIndex();
+            for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                int to = direction == back ? -1 : this.board.target(direction);
+                if (to < 0)
+                    continue;
+                int tile = this.board.tile(to);
+                this.board.slide(to);
+                this.generated++;
+                int childEstimate = heuristic.update(this.board, estimate, tile, to, from);
+                int link = (self << 2) | direction;
+                if (childEstimate == 0 && this.board.isGoal()) {
+                    if (moves + 1 < bestCost)
+                        offer(this.add(link) * workers.length + this.id, moves + 1);
+                } else {
+                    int owner = owner(this.board);
+                    if (owner == this.id)
+                        this.accept(link, moves + 1, childEstimate);
+                    else
+                        this.send(owner, link, moves + 1, childEstimate);
+                }
+                this.board.slide(from);
+            }
+        }
+
+        /**
+         * Данный метод дописывает узел с состоянием this.board в пачку потока owner.
+         *
+         * @param owner
+         * @param link
+         * @param moves
+         * @param estimate
+         */
+        private void send(int owner, int link, int moves, int estimate) {
+            long[] out = this.outbox[owner];
+            int offset = this.outboxSize[owner];
+            this.board.writeState(out, offset);
+            out[offset + width - 2] = link;
+            out[offset + width - 1] = ((long) moves << 32) | estimate;
+            this.outboxSize[owner] = offset + width;
+            if (this.outboxSize[owner] == out.length)
+                this.flush(owner);
+        }
+
+        /**
+         * Данный метод отправляет накопленную пачку потоку owner.
+         *
+         * @param owner
+         */
+        private void flush(int owner) {
+            int size = this.outboxSize[owner];
+            if (size == 0)
+                return;
+            work.incrementAndGet();
+            workers[owner].inbox.add(Arrays.copyOf(this.outbox[owner], size));
+            this.outboxSize[owner] = 0;
+        }
+
+        /**
+         * Данный метод отправляет все накопленные пачки.
+         */
+        private void flushAll() {
+            for (int owner = 0; owner < workers.length; owner++)
+                this.flush(owner);
+        }
+    }
+
+    /**
+     * \brief Данный метод - бенчмарк масштабирования: одни и те же board решаются
+     * на 1, 2, 4, ... потоках (до количества ядер) и выводится ускорение.
+     * \details Board получаются случайным блужданием с фиксированным зерном.
+     * Аргументы: размерность (по умолчанию 4), количество board (4), длина блуждания (200), зерно (1).
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int dimension = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        Random random = new Random(seed);
+        Board[] boards = new Board[count];
+        for (int i = 0; i < count; i++) {
+            int[][] goal = new int[dimension][dimension];
+            for (int j = 0; j < dimension * dimension - 1; j++)
+                goal[j / dimension][j % dimension] = j + 1;
+            Board b = new Board(goal);
+            for (int s = 0; s < steps; s++) {
+                Board next = b.neighbor(random.nextInt(4));
+                if (next != null)
+                    b = next;
+            }
+            boards[i] = b;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        double base = 0;
+        for (int threads = 1; ; threads = Math.min(2 * threads, cores)) {
+            long nanos = 0;
+            long nodes = 0;
+            for (Board b : boards) {
+                ParallelSolver solver = new ParallelSolver(b, threads, Heuristic.defaultFor(dimension));
+                solver.solve();
+                nanos += solver.elapsedNanos();
+                nodes += solver.nodes();
+            }
+            double seconds = nanos / 1e9;
+            if (threads == 1)
+                base = seconds;
+            System.out.printf("threads=%d time=%.2fs nodes=%d nodes/sec=%.0f speedup=%.2f%n",
+                    threads, seconds, nodes, nodes / seconds, base / seconds);
+            if (threads == cores)
+                break;
+        }
+    }
+}
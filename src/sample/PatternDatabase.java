@@ -0,0 +1,342 @@
+package sample;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - база данных шаблонов (pattern database) для одной группы клеток.
+ * \details Для каждого расположения клеток группы хранится наименьшее количество ходов именно этих клеток,
+ * нужное для того, чтобы поставить их на свои места (остальные клетки считаются неразличимыми).
+ * Такие значения для непересекающихся групп можно складывать - получается аддитивная эвристика.
+ *
+ * Значение всегда не меньше манхэтеновского числа клеток группы и имеет ту же чётность,
+ * поэтому в файле хранится (value - manhattan) / 2 в одном полубайте (nibble).
+ * Файл отображается в память через FileChannel.map(), поэтому загрузка ничего не стоит,
+ * а несколько процессов разделяют одни и те же страницы.
+ */
+public class PatternDatabase {
+    private static final int MAGIC = 0x50444231;
+    private static final int HEADER = 64;
+
+    private final int dimension;
+    private final int[] tiles;
+    private final MappedByteBuffer data;
+
+    /**
+     * Данный конструктор создаёт базу поверх отображённого в память файла.
+     *
+     * @param dimension
+     * @param tiles клетки группы
+     * @param data полубайты значений
+     */
+    private PatternDatabase(int dimension, int[] tiles, MappedByteBuffer data) {
+        this.dimension = dimension;
+        this.tiles = tiles;
+        this.data = data;
+    }
+
+    /**
+     * Данный метод возвращает клетки группы.
+     *
+     * @return this.tiles
+     */
+    public int[] tiles() {
+        return this.tiles.clone();
+    }
+
+    /**
+     * \brief Данный метод возвращает добавку базы к манхэтеновскому числу клеток группы.
+     * \details Номер размещения считается прямо по массиву положений, без выделения памяти.
+     *
+     * @param position положение каждой клетки board (индекс - значение клетки)
+     * @return value - manhattan, всегда чётное неотрицательное число
+     */
+    public int extra(int[] position) {
+        int cells = this.dimension * this.dimension;
+        long rank = 0;
+        for (int i = 0; i < this.tiles.length; i++) {
+            int p = position[this.tiles[i]];
+            int digit = p;
+            for (int j = 0; j < i; j++)
+                if (position[this.tiles[j]] < p)
+                    digit--;
+            rank = rank * (cells - i) + digit;
+        }
+        int b = this.data.get((int) (rank >>> 1));
+        return 2 * (((rank & 1) == 0 ? b : b >>> 4) & 0xF);
+    }
+
+    /**
+     * \brief Данный метод возвращает имя файла базы для заданной группы клеток.
+     *
+     * @param dimension
+     * @param tiles
+     * @return например "pdb-4-2.3.4.bin"
+     */
+    public static String fileName(int dimension, int[] tiles) {
+        StringBuilder s = new StringBuilder("pdb-" + dimension + "-");
+        for (int i = 0; i < tiles.length; i++) {
+            if (i > 0)
+                s.append('.');
+            s.append(tiles[i]);
+        }
+        return s.append(".bin").toString();
+    }
+
+    /**
+     * \brief Данный метод отображает файл базы в память.
+     *
+     * @param dimension
+     * @param tiles
+     * @param dir каталог с файлами баз
+     * @return база или null, если файла нет
+     * @throws IOException если файл повреждён или не читается
+     */
+    public static PatternDatabase open(int dimension, int[] tiles, File dir) throws IOException {
+        File file = new File(dir, fileName(dimension, tiles));
+        if (!file.isFile())
+            return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = (permutations(dimension * dimension, tiles.length) + 1) / 2;
+            if (channel.size() != HEADER + size)
+                throw new IOException("Unexpected size of " + file);
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != dimension || header.getInt(8) != tiles.length)
+                throw new IOException("Bad header in " + file);
+            return new PatternDatabase(dimension, tiles.clone(), channel.map(FileChannel.MapMode.READ_ONLY, HEADER, size));
+        }
+    }
+
+    /**
+     * Данный метод возвращает количество размещений k клеток группы по n ячейкам: n! / (n - k)!.
+     *
+     * @param n
+     * @param k
+     * @return количество размещений
+     */
+    public static long permutations(int n, int k) {
+        long result = 1;
+        for (int i = 0; i < k; i++)
+            result *= n - i;
+        return result;
+    }
+
+    /**
+     * \brief Данный метод переводит размещение клеток в номер от 0 до permutations(cells, k) - 1.
+     * \details Положение i-й клетки уменьшается на количество предыдущих клеток, стоящих левее,
+     * и записывается цифрой в смешанной системе счисления с основанием cells - i.
+     *
+     * @param positions
+     * @param k
+     * @param cells
+     * @return rank
+     */
+    public static long rank(int[] positions, int k, int cells) {
+        long rank = 0;
+        for (int i = 0; i < k; i++) {
+            int p = positions[i];
+            int digit = p;
+            for (int j = 0; j < i; j++)
+                if (positions[j] < p)
+                    digit--;
+            rank = rank * (cells - i) + digit;
+        }
+        return rank;
+    }
+
+    /**
+     * Данный метод выполняет обратное к rank() преобразование.
+     *
+     * @param rank
+     * @param k
+     * @param cells
+     * @param positions результат
+     */
+    public static void unrank(long rank, int k, int cells, int[] positions) {
+        for (int i = k - 1; i >= 0; i--) {
+            positions[i] = (int) (rank % (cells - i));
+            rank /= cells - i;
+        }
+        boolean[] used = new boolean[cells];
+        for (int i = 0; i < k; i++) {
+            int digit = positions[i];
+            int p = 0;
+            while (used[p] || digit > 0) {
+                if (!used[p])
+                    digit--;
+                p++;
+            }
+            used[p] = true;
+            positions[i] = p;
+        }
+    }
+
+    /**
+     * \brief Данный метод строит базу обратным поиском в ширину от целевого board и записывает её в файл.
+     * \details Состояние поиска - размещение клеток группы и положение пустой клетки. Ходы пустой клетки
+     * по клеткам вне группы бесплатны, поэтому вся связная область, доступная пустой клетке,
+     * обрабатывается сразу; ход клетки группы стоит 1 и переводит состояние в следующий слой.
+     * Слои хранятся в битовых массивах, так что память - несколько бит на состояние.
+     *
+     * @param dimension
+     * @param tiles
+     * @param file
+     * @throws IOException
+     */
+    public static void generate(int dimension, int[] tiles, File file) throws IOException {
+        int cells = dimension * dimension;
+        int k = tiles.length;
+        long size = permutations(cells, k);
+        int words = (int) ((size * cells + 63) >>> 6);
+        long[] visited = new long[words];
+        long[] current = new long[words];
+        long[] next = new long[words];
+        long[] done = new long[(int) ((size + 63) >>> 6)];
+        byte[] nibbles = new byte[(int) ((size + 1) / 2)];
+
+        int[] positions = new int[k];
+        for (int i = 0; i < k; i++)
+            positions[i] = tiles[i] - 1;
+        long start = rank(positions, k, cells) * cells + cells - 1;
+        current[(int) (start >>> 6)] |= 1L << start;
+
+        int[] occupied = new int[cells];
+        int[] region = new int[cells];
+        boolean more = true;
+        for (int depth = 0; more; depth++) {
+            more = false;
+            for (int w = 0; w < words; w++) {
+                while (current[w] != 0) {
+                    long state = ((long) w << 6) + Long.numberOfTrailingZeros(current[w]);
+                    current[w] &= current[w] - 1;
+                    if ((visited[(int) (state >>> 6)] & (1L << state)) != 0)
+                        continue;
+                    long rank = state / cells;
+                    unrank(rank, k, cells, positions);
+                    Arrays.fill(occupied, -1);
+                    for (int i = 0; i < k; i++)
+                        occupied[positions[i]] = i;
+
+                    int count = fill((int) (state % cells), dimension, occupied, region);
+                    for (int r = 0; r < count; r++) {
+                        long s = rank * cells + region[r];
+                        visited[(int) (s >>> 6)] |= 1L << s;
+                        current[(int) (s >>> 6)] &= ~(1L << s);
+                    }
+                    if ((done[(int) (rank >>> 6)] & (1L << rank)) == 0) {
+                        done[(int) (rank >>> 6)] |= 1L << rank;
+                        int value = Math.min(15, (depth - manhattan(tiles, positions, dimension)) / 2);
+                        nibbles[(int) (rank >>> 1)] |= (byte) ((rank & 1) == 0 ? value : value << 4);
+                    }
+
+                    for (int r = 0; r < count; r++) {
+                        int cell = region[r];
+                        int row = cell / dimension;
+                        int col = cell % dimension;
+                        for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                            int c = neighbor(row, col, direction, dimension);
+                            if (c < 0 || occupied[c] < 0)
+                                continue;
+                            int i = occupied[c];
+                            positions[i] = cell;
+                            long s = rank(positions, k, cells) * cells + c;
+                            positions[i] = c;
+                            if ((visited[(int) (s >>> 6)] & (1L << s)) == 0) {
+                                next[(int) (s >>> 6)] |= 1L << s;
+                                more = true;
+                            }
+                        }
+                    }
+                }
+            }
+            long[] t = current;
+            current = next;
+            next = t;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(dimension).putInt(k);
+        header.clear();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(nibbles);
+            while (body.hasRemaining())
+                channel.write(body);
+        }
+    }
+
+    /**
+     * Данный метод находит все ячейки вне группы, связанные с ячейкой start.
+     *
+     * @param start
+     * @param dimension
+     * @param occupied номер клетки группы в ячейке или -1
+     * @param region результат
+     * @return количество найденных ячеек
+     */
+    private static int fill(int start, int dimension, int[] occupied, int[] region) {
+        boolean[] seen = new boolean[occupied.length];
+        int count = 0;
+        region[count++] = start;
+        seen[start] = true;
+        for (int r = 0; r < count; r++) {
+            int row = region[r] / dimension;
+            int col = region[r] % dimension;
+            for (int direction = Board.UP; direction <= Board.RIGHT; direction++) {
+                int c = neighbor(row, col, direction, dimension);
+                if (c >= 0 && !seen[c] && occupied[c] < 0) {
+                    seen[c] = true;
+                    region[count++] = c;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Данный метод возвращает соседнюю ячейку в направлении direction.
+     *
+     * @param row
+     * @param col
+     * @param direction
+     * @param dimension
+     * @return индекс ячейки или -1
+     */
+    private static int neighbor(int row, int col, int direction, int dimension) {
+        switch (direction) {
+            case Board.UP:    return row > 0 ? (row - 1) * dimension + col : -1;
+            case Board.DOWN:  return row < dimension - 1 ? (row + 1) * dimension + col : -1;
+            case Board.LEFT:  return col > 0 ? row * dimension + col - 1 : -1;
+            default:          return col < dimension - 1 ? row * dimension + col + 1 : -1;
+        }
+    }
+
+    /**
+     * Данный метод считает манхэтеновское число клеток группы.
+     *
+     * @param tiles
+     * @param positions
+     * @param dimension
+     * @return сумма расстояний
+     */
+    private static int manhattan(int[] tiles, int[] positions, int dimension) {
+        int result = 0;
+        for (int i = 0; i < tiles.length; i++) {
+            int goal = tiles[i] - 1;
+            result += Math.abs(goal / dimension - positions[i] / dimension)
+                    + Math.abs(goal % dimension - positions[i] % dimension);
+        }
+        return result;
+    }
+}
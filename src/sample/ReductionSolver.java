@@ -0,0 +1,457 @@
+package sample;
+
+import java.util.Arrays;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - быстрый неоптимальный решатель для больших board (вплоть до 20x20).
+ * \details Board сводится к меньшему: ставится на место верхняя строка оставшейся области, затем её левый столбец,
+ * и область m x m превращается в (m-1) x (m-1). Когда остаётся область finish x finish (3 или 4),
+ * она решается оптимально: 3x3 - по таблице LookupTable, 4x4 - алгоритмом IDA*.
+ *
+ * Клетка ставится на место так: поиском в ширину находится её путь по незакреплённым ячейкам, и для каждого шага
+ * пустая клетка подводится (тоже поиском в ширину, в обход закреплённых ячеек и самой клетки) на следующую ячейку пути.
+ * Две последние клетки строки (столбца) так поставить нельзя - последняя ячейка оказывается тупиком,
+ * поэтому они ставятся вместе: поиском в ширину по состояниям (клетка A, клетка B, пустая клетка)
+ * в окне 3x3 у конца строки. Все рабочие массивы - по ячейке board, т.е. память линейна по N^2,
+ * а время на клетку - O(N^2), поэтому 20x20 решается за миллисекунды. Взаимно обратные соседние ходы сокращаются.
+ */
+public class ReductionSolver {
+    private final Board board;
+    private final int n;
+    private final int finish;
+    private final SearchBudget budget;
+    private final boolean[] locked;
+    private final int[] position;
+    private final int[] queue;
+    private final int[] from;
+    private final int[] seen;
+    private int stamp = 0;
+    private int[] path = new int[64];
+    private int length = 0;
+    private long nodes = 0;
+    private int placed = 0;
+
+    /**
+     * @param initial изначальный board (не изменяется)
+     * @param finish размер области, решаемой оптимально: 3 или 4
+     * @param budget ограничение поиска
+     */
+    public ReductionSolver(Board initial, int finish, SearchBudget budget) {
+        if (finish < 3 || finish > 4)
+            throw new IllegalArgumentException("Finish region must be 3 or 4, got " + finish);
+        this.board = new Board(initial);
+        this.n = initial.dimension();
+        this.finish = finish;
+        this.budget = budget;
+        int cells = this.n * this.n;
+        this.locked = new boolean[cells];
+        this.position = new int[cells];
+        for (int i = 0; i < cells; i++)
+            this.position[this.board.tile(i)] = i;
+        this.queue = new int[cells];
+        this.from = new int[cells];
+        this.seen = new int[cells];
+    }
+
+    /**
+     * \brief Данный метод решает board.
+     *
+     * @return ходы пустой клетки
+     * @throws SearchAbortedException если поиск отменён или исчерпал бюджет
+     */
+    public int[] solve() {
+        int top = 0;
+        int left = 0;
+        while (this.n - top > this.finish) {
+            this.solveRow(top, left);
+            top++;
+            this.solveColumn(left, top);
+            left++;
+        }
+        this.finishRegion(top);
+        return Arrays.copyOf(this.path, this.length);
+    }
+
+    /**
+     * Данный метод возвращает количество ячеек, просмотренных поисками в ширину.
+     *
+     * @return this.nodes
+     */
+    public long nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Данный метод возвращает количество клеток, поставленных на место сведением.
+     *
+     * @return this.placed
+     */
+    public int placed() {
+        return this.placed;
+    }
+
+    /**
+     * \brief Данный метод ставит на место строку top (ячейки left..N-1).
+     *
+     * @param top
+     * @param left
+     */
+    private void solveRow(int top, int left) {
+        for (int col = left; col < this.n - 2; col++)
+            this.placeAndLock(top * this.n + col);
+        int homeA = top * this.n + this.n - 2;
+        int homeB = homeA + 1;
+        this.placePair(homeA, homeB, homeB + this.n, top, top + 2, this.n - 3, this.n - 1);
+    }
+
+    /**
+     * \brief Данный метод ставит на место столбец left (ячейки top..N-1).
+     *
+     * @param left
+     * @param top
+     */
+    private void solveColumn(int left, int top) {
+        for (int row = top; row < this.n - 2; row++)
+            this.placeAndLock(row * this.n + left);
+        int homeA = (this.n - 2) * this.n + left;
+        int homeB = homeA + this.n;
+        this.placePair(homeA, homeB, homeB + 1, this.n - 3, this.n - 1, left, left + 2);
+    }
+
+    /**
+     * \brief Данный метод ставит на место и закрепляет клетку, чьё место - ячейка home.
+     *
+     * @param home
+     */
+    private void placeAndLock(int home) {
+        if (!this.placeTile(home + 1, home))
+            throw new IllegalStateException("Cannot place tile " + (home + 1));
+        this.lock(home);
+    }
+
+    /**
+     * \brief Данный метод ставит на место две последние клетки строки или столбца.
+     * \details Клетка A ставится обычным способом, клетка B - рядом со своим местом (в ячейку near),
+     * после чего обе клетки и пустая клетка оказываются в окне rows x cols и доставляются на места
+     * поиском в ширину по состояниям окна.
+     *
+     * @param homeA предпоследняя ячейка
+     * @param homeB последняя ячейка (тупик, если A уже на месте)
+     * @param near ячейка окна рядом с homeB
+     * @param rowFrom
+     * @param rowTo
+     * @param colFrom
+     * @param colTo
+     */
+    private void placePair(int homeA, int homeB, int near, int rowFrom, int rowTo, int colFrom, int colTo) {
+        int a = homeA + 1;
+        int b = homeB + 1;
+        if (!this.placeTile(a, homeA))
+            throw new IllegalStateException("Cannot place tile " + a);
+        if (this.position[b] != homeB) {
+            this.locked[homeA] = true;
+            boolean nearPlaced = this.placeTile(b, near);
+            this.locked[homeA] = false;
+            if (!nearPlaced)
+                throw new IllegalStateException("Cannot place tile " + b);
+            int[] window = new int[(rowTo - rowFrom + 1) * (colTo - colFrom + 1)];
+            int size = 0;
+            for (int r = rowFrom; r <= rowTo; r++)
+                for (int c = colFrom; c <= colTo; c++)
+                    if (!this.locked[r * this.n + c])
+                        window[size++] = r * this.n + c;
+            window = Arrays.copyOf(window, size);
+            int target = -1;
+            for (int cell : window)
+                if (this.position[a] != cell && this.position[b] != cell)
+                    target = cell;
+            if (local(window, this.position[0]) < 0 && !this.moveBlank(target, this.position[a], this.position[b]))
+                throw new IllegalStateException("Cannot bring the blank to tiles " + a + " and " + b);
+            this.solveWindow(window, a, homeA, b, homeB);
+        }
+        this.lock(homeA);
+        this.lock(homeB);
+    }
+
+    /**
+     * Данный метод закрепляет ячейку и проверяет бюджет.
+     *
+     * @param cell
+     */
+    private void lock(int cell) {
+        this.locked[cell] = true;
+        this.placed++;
+        this.budget.check(this.nodes, this.placed, this.length);
+    }
+
+    /**
+     * \brief Данный метод ставит клетку value в ячейку target, не трогая закреплённые ячейки.
+     *
+     * @param value
+     * @param target
+     * @return false, если пустую клетку не удалось подвести к очередной ячейке пути
+     */
+    private boolean placeTile(int value, int target) {
+        int cell = this.position[value];
+        if (cell == target)
+            return true;
+        int steps = this.search(target, cell, -1, -1);
+        if (steps < 0)
+            return false;
+        int[] route = new int[steps];
+        for (int i = 0, c = this.from[target]; i < steps; i++, c = this.from[c])
+            route[steps - 1 - i] = c;
+        for (int i = 1; i < steps; i++) {
+            cell = route[i - 1];
+            if (!this.moveBlank(route[i], cell, -1))
+                return false;
+            this.move(direction(route[i], cell));
+        }
+        if (!this.moveBlank(target, this.position[value], -1))
+            return false;
+        this.move(direction(target, this.position[value]));
+        return true;
+    }
+
+    /**
+     * \brief Данный метод подводит пустую клетку в ячейку target в обход закреплённых ячеек и ячеек avoid1, avoid2.
+     *
+     * @param target
+     * @param avoid1
+     * @param avoid2 или -1
+     * @return false, если target недостижима
+     */
+    private boolean moveBlank(int target, int avoid1, int avoid2) {
+        int blank = this.position[0];
+        if (blank == target)
+            return true;
+        int steps = this.search(target, blank, avoid1, avoid2);
+        if (steps < 0)
+            return false;
+        int[] cells = new int[steps + 1];
+        int c = target;
+        for (int i = steps; i >= 0; i--) {
+            cells[i] = c;
+            c = this.from[c];
+        }
+        for (int i = 1; i <= steps; i++)
+            this.move(direction(cells[i - 1], cells[i]));
+        return true;
+    }
+
+    /**
+     * \brief Данный метод ищет в ширину кратчайший путь от start до target по незакреплённым ячейкам.
+     * \details Путь записывается в from[] (предыдущая ячейка пути) и восстанавливается от target.
+     * Массив seen сбрасывается сменой номера поиска stamp, без обхода.
+     *
+     * @param target
+     * @param start
+     * @param avoid1 запрещённая ячейка или -1
+     * @param avoid2 запрещённая ячейка или -1
+     * @return длина пути или -1
+     */
+    private int search(int target, int start, int avoid1, int avoid2) {
+        int mark = ++this.stamp;
+        int head = 0;
+        int tail = 0;
+        this.queue[tail++] = start;
+        this.seen[start] = mark;
+        this.from[start] = -1;
+        while (head < tail) {
+            int cell = this.queue[head++];
+            this.nodes++;
+            if (cell == target) {
+                int steps = 0;
+                for (int c = target; c != start; c = this.from[c])
+                    steps++;
+                return steps;
+            }
+            int row = cell / this.n;
+            int col = cell % this.n;
+            for (int d = Board.UP; d <= Board.RIGHT; d++) {
+                int next = neighbor(row, col, d, this.n);
+                if (next < 0 || this.seen[next] == mark || this.locked[next] || next == avoid1 || next == avoid2)
+                    continue;
+                this.seen[next] = mark;
+                this.from[next] = cell;
+                this.queue[tail++] = next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * \brief Данный метод ставит клетки a и b на места поиском в ширину по состояниям окна.
+     * \details Состояние - локальные номера ячеек клетки a, клетки b и пустой клетки в окне (не больше 9^3 состояний).
+     * Остальные клетки окна считаются неразличимыми.
+     *
+     * @param window ячейки окна
+     * @param a
+     * @param homeA
+     * @param b
+     * @param homeB
+     */
+    private void solveWindow(int[] window, int a, int homeA, int b, int homeB) {
+        int w = window.length;
+        int states = w * w * w;
+        int[] parent = new int[states];
+        byte[] via = new byte[states];
+        Arrays.fill(parent, -2);
+        int[] queue = new int[states];
+        int start = (local(window, this.position[a]) * w + local(window, this.position[b])) * w
+                + local(window, this.position[0]);
+        int goalA = local(window, homeA);
+        int goalB = local(window, homeB);
+        parent[start] = -1;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        int found = -1;
+        while (head < tail && found < 0) {
+            int state = queue[head++];
+            this.nodes++;
+            int pa = state / (w * w);
+            int pb = state / w % w;
+            int pe = state % w;
+            if (pa == goalA && pb == goalB) {
+                found = state;
+                break;
+            }
+            int cell = window[pe];
+            for (int d = Board.UP; d <= Board.RIGHT; d++) {
+                int next = local(window, neighbor(cell / this.n, cell % this.n, d, this.n));
+                if (next < 0)
+                    continue;
+                int na = next == pa ? pe : pa;
+                int nb = next == pb ? pe : pb;
+                int s = (na * w + nb) * w + next;
+                if (parent[s] != -2)
+                    continue;
+                parent[s] = state;
+                via[s] = (byte) d;
+                queue[tail++] = s;
+            }
+        }
+        if (found < 0)
+            throw new IllegalStateException("Cannot place tiles " + a + " and " + b);
+        int steps = 0;
+        for (int s = found; parent[s] >= 0; s = parent[s])
+            steps++;
+        int[] moves = new int[steps];
+        for (int s = found, i = steps - 1; parent[s] >= 0; s = parent[s], i--)
+            moves[i] = via[s];
+        for (int d : moves)
+            this.move(d);
+    }
+
+    /**
+     * \brief Данный метод оптимально решает оставшуюся область finish x finish в правом нижнем углу.
+     * \details Клетки области перенумеровываются как в board размера k, ходы пустой клетки в нём
+     * совпадают с ходами в большом board. Остальные клетки уже на местах, поэтому область решаема.
+     *
+     * @param top первая строка (и первый столбец) области
+     */
+    private void finishRegion(int top) {
+        int k = this.n - top;
+        int[][] sub = new int[k][k];
+        for (int r = 0; r < k; r++)
+            for (int c = 0; c < k; c++) {
+                int value = this.board.tile((top + r) * this.n + top + c);
+                if (value != 0) {
+                    int home = value - 1;
+                    value = (home / this.n - top) * k + (home % this.n - top) + 1;
+                }
+                sub[r][c] = value;
+            }
+        Board region = new Board(sub);
+        if (region.isGoal())
+            return;
+        int[] moves;
+        LookupTable table = LookupTable.forDimension(k);
+        if (table != null) {
+            moves = table.path(region);
+        } else {
+            IdaStar search = new IdaStar(region, Heuristic.defaultFor(k), this.budget);
+            try {
+                moves = search.solve();
+            } finally {
+                this.nodes += search.nodes();
+            }
+        }
+        for (int d : moves)
+            this.move(d);
+    }
+
+    /**
+     * \brief Данный метод делает ход пустой клетки и записывает его; ход, обратный предыдущему, сокращается с ним.
+     *
+     * @param direction
+     */
+    private void move(int direction) {
+        int blank = this.board.blankIndex();
+        int to = this.board.target(direction);
+        int value = this.board.tile(to);
+        this.board.slide(to);
+        this.position[value] = blank;
+        this.position[0] = to;
+        if (this.length > 0 && this.path[this.length - 1] == (direction ^ 1)) {
+            this.length--;
+            return;
+        }
+        if (this.length == this.path.length)
+            this.path = Arrays.copyOf(this.path, this.length * 2);
+        this.path[this.length++] = direction;
+    }
+
+    /**
+     * Данный метод возвращает локальный номер ячейки в окне.
+     *
+     * @param window
+     * @param cell
+     * @return номер или -1, если ячейки нет в окне
+     */
+    private static int local(int[] window, int cell) {
+        for (int i = 0; i < window.length; i++)
+            if (window[i] == cell)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Данный метод возвращает ход пустой клетки из ячейки from в соседнюю ячейку to.
+     *
+     * @param from
+     * @param to
+     * @return Board.UP, Board.DOWN, Board.LEFT или Board.RIGHT
+     */
+    private int direction(int from, int to) {
+        if (to == from - this.n)
+            return Board.UP;
+        if (to == from + this.n)
+            return Board.DOWN;
+        if (to == from - 1)
+            return Board.LEFT;
+        return Board.RIGHT;
+    }
+
+    /**
+     * Данный метод возвращает соседнюю ячейку в направлении direction.
+     *
+     * @param row
+     * @param col
+     * @param direction
+     * @param dimension
+     * @return ячейка или -1 за краем board
+     */
+    private static int neighbor(int row, int col, int direction, int dimension) {
+        switch (direction) {
+            case Board.UP:    return row > 0 ? (row - 1) * dimension + col : -1;
+            case Board.DOWN:  return row < dimension - 1 ? (row + 1) * dimension + col : -1;
+            case Board.LEFT:  return col > 0 ? row * dimension + col - 1 : -1;
+            default:          return col < dimension - 1 ? row * dimension + col + 1 : -1;
+        }
+    }
+}
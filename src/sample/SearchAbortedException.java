@@ -0,0 +1,31 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данное исключение выбрасывается, если поиск отменён или исчерпал SearchBudget.
+ */
+public class SearchAbortedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long expanded;
+
+    /**
+     * @param reason причина остановки
+     * @param expanded сколько узлов успели раскрыть
+     */
+    public SearchAbortedException(String reason, long expanded) {
+        super(reason);
+        this.expanded = expanded;
+    }
+
+    /**
+     * Данный метод возвращает количество узлов, раскрытых до остановки.
+     *
+     * @return this.expanded
+     */
+    public long expanded() {
+        return this.expanded;
+    }
+}
@@ -0,0 +1,158 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - ограничение поиска по времени и количеству раскрытых узлов, с возможностью отмены.
+ * \details Алгоритмы поиска периодически (раз в CHECK_INTERVAL раскрытых узлов) вызывают check():
+ * если поиск отменён или бюджет исчерпан, выбрасывается SearchAbortedException, иначе не чаще
+ * чем раз в reportMillis слушателям сообщается ход поиска. cancel() можно вызывать из любого потока.
+ */
+public class SearchBudget {
+    /** Раз во сколько раскрытых узлов алгоритмы проверяют бюджет (степень двойки). */
+    public static final int CHECK_INTERVAL = 1024;
+
+    /**
+     * \brief Данный интерфейс получает сведения о ходе поиска.
+     * \details Вызывается из потока поиска.
+     */
+    public interface Listener {
+        /**
+         * @param expanded раскрыто узлов
+         * @param open размер открытого списка (для IDA* - глубина текущего пути)
+         * @param bound текущая граница f
+         * @param nodesPerSecond скорость поиска
+         */
+        void progress(long expanded, int open, int bound, double nodesPerSecond);
+    }
+
+    private final long maxNanos;
+    private final long maxNodes;
+    private final long reportNanos;
+    private volatile boolean cancelled = false;
+    private final List<Listener> listeners = new ArrayList<Listener>();
+    private long startNanos = System.nanoTime();
+    private long lastReport = 0;
+
+    /**
+     * Данный конструктор создаёт бюджет без ограничений (поиск можно только отменить).
+     */
+    public SearchBudget() {
+        this(0, 0);
+    }
+
+    /**
+     * @param maxMillis ограничение по времени в миллисекундах, 0 - без ограничения
+     * @param maxNodes ограничение по количеству раскрытых узлов, 0 - без ограничения
+     */
+    public SearchBudget(long maxMillis, long maxNodes) {
+        this(maxMillis, maxNodes, 100);
+    }
+
+    /**
+     * @param maxMillis ограничение по времени в миллисекундах, 0 - без ограничения
+     * @param maxNodes ограничение по количеству раскрытых узлов, 0 - без ограничения
+     * @param reportMillis наименьший промежуток между сообщениями слушателям
+     */
+    public SearchBudget(long maxMillis, long maxNodes, long reportMillis) {
+        this.maxNanos = maxMillis * 1000000;
+        this.maxNodes = maxNodes;
+        this.reportNanos = reportMillis * 1000000;
+    }
+
+    /**
+     * Данный метод добавляет слушателя хода поиска; слушателей нужно добавлять до начала поиска.
+     *
+     * @param listener
+     */
+    public void addListener(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Данный метод отсчитывает ограничение по времени с текущего момента; вызывается в начале поиска.
+     */
+    public void start() {
+        this.startNanos = System.nanoTime();
+        this.lastReport = this.startNanos;
+    }
+
+    /**
+     * Данный метод отменяет поиск: он прервётся при ближайшей проверке.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Данный метод проверяет, отменён ли поиск.
+     *
+     * @return this.cancelled
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * \brief Данный метод проверяет, нужно ли остановить поиск.
+     *
+     * @param expanded раскрыто узлов
+     * @return true, если поиск отменён или бюджет исчерпан
+     */
+    public boolean exceeded(long expanded) {
+        return this.cancelled || (this.maxNodes > 0 && expanded >= this.maxNodes)
+                || (this.maxNanos > 0 && System.nanoTime() - this.startNanos >= this.maxNanos);
+    }
+
+    /**
+     * \brief Данный метод сообщает слушателям ход поиска, если с прошлого сообщения прошло не меньше reportMillis.
+     *
+     * @param expanded
+     * @param open
+     * @param bound
+     */
+    public void progress(long expanded, int open, int bound) {
+        if (this.listeners.isEmpty())
+            return;
+        long now = System.nanoTime();
+        if (now - this.lastReport < this.reportNanos)
+            return;
+        this.lastReport = now;
+        double seconds = (now - this.startNanos) / 1e9;
+        double nodesPerSecond = seconds > 0 ? expanded / seconds : 0;
+        for (Listener listener : this.listeners)
+            listener.progress(expanded, open, bound, nodesPerSecond);
+    }
+
+    /**
+     * \brief Данный метод сообщает ход поиска и прерывает его, если бюджет исчерпан.
+     *
+     * @param expanded
+     * @param open
+     * @param bound
+     * @throws SearchAbortedException если поиск отменён или бюджет исчерпан
+     */
+    public void check(long expanded, int open, int bound) {
+        if (this.exceeded(expanded))
+            throw new SearchAbortedException(this.reason(expanded), expanded);
+        this.progress(expanded, open, bound);
+    }
+
+    /**
+     * Данный метод описывает причину остановки поиска.
+     *
+     * @param expanded
+     * @return "cancelled", "node limit" или "time limit"
+     */
+    public String reason(long expanded) {
+        if (this.cancelled)
+            return "cancelled";
+        if (this.maxNodes > 0 && expanded >= this.maxNodes)
+            return "node limit";
+        return "time limit";
+    }
+}
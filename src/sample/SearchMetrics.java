@@ -0,0 +1,319 @@
+package sample;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - счётчики и замеры одного решения.
+ * \details Счётчики заполняют алгоритмы поиска пакета (поля доступны внутри пакета), снаружи они только читаются.
+ * Во время поиска слушатель Listener периодически получает этот объект (раз в отчёт SearchBudget),
+ * после решения метрики добавляются в общие для процесса итоги SolverStats.
+ *
+ * Время делится на фазы: проверка решаемости, поиск (включая вычисление эвристики) и восстановление решения.
+ * Выделенная память считается по com.sun.management.ThreadMXBean для потоков, выполнявших поиск.
+ */
+public class SearchMetrics {
+
+    /**
+     * \brief Данный интерфейс получает снимки метрик во время поиска.
+     * \details Вызывается из потока поиска; счётчики, которые алгоритм не успел обновить, могут отставать.
+     */
+    public interface Listener {
+        /**
+         * @param metrics текущие метрики решения
+         */
+        void snapshot(SearchMetrics metrics);
+
+        /**
+         * \brief Данный метод получает улучшенное решение от алгоритма, который находит решения постепенно (ANYTIME).
+         * \details В metrics уже записаны длина решения (moves) и граница субоптимальности. По умолчанию ничего не делает.
+         *
+         * @param metrics текущие метрики решения
+         * @param path ходы пустой клетки Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT
+         */
+        default void improved(SearchMetrics metrics, int[] path) {
+        }
+    }
+
+    String engine = "";
+    String heuristic = "";
+    boolean solvable = false;
+    boolean aborted = false;
+    int moves = -1;
+    long generated = 0;
+    long expanded = 0;
+    long duplicates = 0;
+    int open = 0;
+    int peakOpen = 0;
+    int bound = 0;
+    int iterations = 0;
+    double suboptimality = 1;
+    long heuristicCalls = 0;
+    long heuristicNanos = 0;
+    long solvabilityNanos = 0;
+    long searchNanos = 0;
+    long reconstructionNanos = 0;
+    long allocatedBytes = -1;
+
+    /**
+     * Данный метод возвращает имя алгоритма поиска.
+     *
+     * @return например "ASTAR"
+     */
+    public String engine() {
+        return this.engine;
+    }
+
+    /**
+     * Данный метод возвращает название эвристики.
+     *
+     * @return например "manhattan"
+     */
+    public String heuristic() {
+        return this.heuristic;
+    }
+
+    /**
+     * Данный метод проверяет, решаем ли board.
+     *
+     * @return this.solvable
+     */
+    public boolean solvable() {
+        return this.solvable;
+    }
+
+    /**
+     * Данный метод проверяет, был ли поиск прерван (SearchBudget).
+     *
+     * @return this.aborted
+     */
+    public boolean aborted() {
+        return this.aborted;
+    }
+
+    /**
+     * Данный метод возвращает длину найденного решения.
+     *
+     * @return количество ходов или -1
+     */
+    public int moves() {
+        return this.moves;
+    }
+
+    /**
+     * Данный метод возвращает количество сгенерированных узлов (соседей раскрытых узлов).
+     *
+     * @return this.generated
+     */
+    public long generated() {
+        return this.generated;
+    }
+
+    /**
+     * Данный метод возвращает количество раскрытых узлов.
+     *
+     * @return this.expanded
+     */
+    public long expanded() {
+        return this.expanded;
+    }
+
+    /**
+     * Данный метод возвращает количество отброшенных повторных board.
+     *
+     * @return this.duplicates
+     */
+    public long duplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Данный метод возвращает размер открытого списка при последнем снимке (для IDA* - глубину пути).
+     *
+     * @return this.open
+     */
+    public int open() {
+        return this.open;
+    }
+
+    /**
+     * Данный метод возвращает наибольший размер открытого списка (для IDA* - наибольшую глубину пути,
+     * для HDA* - сумму по потокам).
+     *
+     * @return this.peakOpen
+     */
+    public int peakOpen() {
+        return this.peakOpen;
+    }
+
+    /**
+     * \brief Данный метод возвращает доказанную границу субоптимальности решения.
+     * \details Для оптимальных алгоритмов - 1, для ANYTIME - во сколько раз найденное решение
+     * может быть длиннее оптимального (для REDUCTION граница не известна и тоже не считается).
+     *
+     * @return this.suboptimality
+     */
+    public double suboptimality() {
+        return this.suboptimality;
+    }
+
+    /**
+     * Данный метод возвращает границу f при последнем снимке.
+     *
+     * @return this.bound
+     */
+    public int bound() {
+        return this.bound;
+    }
+
+    /**
+     * Данный метод возвращает количество итераций углубления IDA*.
+     *
+     * @return this.iterations
+     */
+    public int iterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Данный метод возвращает количество вычислений эвристики.
+     *
+     * @return this.heuristicCalls
+     */
+    public long heuristicCalls() {
+        return this.heuristicCalls;
+    }
+
+    /**
+     * Данный метод возвращает время вычисления эвристики в наносекундах.
+     *
+     * @return this.heuristicNanos
+     */
+    public long heuristicNanos() {
+        return this.heuristicNanos;
+    }
+
+    /**
+     * Данный метод возвращает время проверки решаемости в наносекундах.
+     *
+     * @return this.solvabilityNanos
+     */
+    public long solvabilityNanos() {
+        return this.solvabilityNanos;
+    }
+
+    /**
+     * Данный метод возвращает время поиска в наносекундах.
+     *
+     * @return this.searchNanos
+     */
+    public long searchNanos() {
+        return this.searchNanos;
+    }
+
+    /**
+     * Данный метод возвращает время восстановления решения в наносекундах.
+     *
+     * @return this.reconstructionNanos
+     */
+    public long reconstructionNanos() {
+        return this.reconstructionNanos;
+    }
+
+    /**
+     * Данный метод возвращает общее время решения в наносекундах.
+     *
+     * @return сумма фаз
+     */
+    public long totalNanos() {
+        return this.solvabilityNanos + this.searchNanos + this.reconstructionNanos;
+    }
+
+    /**
+     * Данный метод возвращает количество байт, выделенных за решение.
+     *
+     * @return байты или -1, если JVM не умеет их считать
+     */
+    public long allocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    /**
+     * Данный метод возвращает количество выделенных байт на сгенерированный узел.
+     *
+     * @return байты на узел или 0
+     */
+    public double bytesPerNode() {
+        if (this.allocatedBytes < 0 || this.generated == 0)
+            return 0;
+        return (double) this.allocatedBytes / this.generated;
+    }
+
+    /**
+     * Данный метод возвращает скорость поиска - количество раскрытых узлов в секунду.
+     *
+     * @return nodes / seconds
+     */
+    public double nodesPerSecond() {
+        if (this.searchNanos == 0)
+            return 0;
+        return this.expanded * 1e9 / this.searchNanos;
+    }
+
+    /**
+     * \brief Данный метод вычисляет эффективный коэффициент ветвления b*.
+     * \details b* - такое число, что равномерное дерево глубины d (длина решения) с коэффициентом ветвления b*
+     * содержит generated + 1 узлов: generated + 1 = 1 + b* + b*^2 + ... + b*^d. Находится делением пополам.
+     * Чем ближе b* к 1, тем точнее эвристика.
+     *
+     * @return b* или 0, если решение пустое
+     */
+    public double branchingFactor() {
+        if (this.moves <= 0 || this.generated == 0)
+            return 0;
+        double nodes = this.generated + 1;
+        double low = 1;
+        double high = Math.max(2, nodes);
+        for (int i = 0; i < 100; i++) {
+            double b = (low + high) / 2;
+            double sum = 1;
+            double power = 1;
+            for (int d = 0; d < this.moves && sum <= nodes; d++) {
+                power *= b;
+                sum += power;
+            }
+            if (sum > nodes)
+                high = b;
+            else
+                low = b;
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * Данный метод возвращает количество байт, выделенных текущим потоком.
+     *
+     * @return байты или -1, если JVM этого не умеет
+     */
+    public static long threadAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("engine=%s heuristic=%s moves=%d generated=%d expanded=%d duplicates=%d peakOpen=%d"
+                        + " b*=%.3f iterations=%d heuristicCalls=%d heuristicMs=%.1f solvabilityMs=%.3f searchMs=%.1f"
+                        + " reconstructionMs=%.3f allocatedBytes=%d bytesPerNode=%.1f nodesPerSecond=%.0f suboptimality=%.2f%s",
+                this.engine, this.heuristic, this.moves, this.generated, this.expanded, this.duplicates, this.peakOpen,
+                this.branchingFactor(), this.iterations, this.heuristicCalls, this.heuristicNanos / 1e6,
+                this.solvabilityNanos / 1e6, this.searchNanos / 1e6, this.reconstructionNanos / 1e6,
+                this.allocatedBytes, this.bytesPerNode(), this.nodesPerSecond(), this.suboptimality,
+                this.aborted ? " aborted" : "");
+    }
+}
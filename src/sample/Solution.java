@@ -0,0 +1,201 @@
+package sample;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - найденное решение: изначальный board и последовательность ходов пустой клетки.
+ * \details Ходы хранятся массивом byte[] (Board.UP, DOWN, LEFT, RIGHT), т.е. по байту на ход вместо board на ход.
+ * Board решения строятся лениво: итератор применяет ходы к одному изменяемому board и отдаёт копию только
+ * запрошенного board, а Cursor позволяет ходить по решению вперёд и назад совсем без копий.
+ */
+public class Solution implements Iterable<Board> {
+    private static final String LETTERS = "UDLR";
+
+    private final Board initial;
+    private final byte[] moves;
+
+    /**
+     * @param initial изначальный board (копируется)
+     * @param path ходы пустой клетки
+     */
+    Solution(Board initial, int[] path) {
+        this.initial = new Board(initial);
+        this.moves = new byte[path.length];
+        for (int i = 0; i < path.length; i++)
+            this.moves[i] = (byte) path[i];
+    }
+
+    /**
+     * Данный метод возвращает количество ходов решения.
+     *
+     * @return moves.length
+     */
+    public int length() {
+        return this.moves.length;
+    }
+
+    /**
+     * Данный метод возвращает ход номер index.
+     *
+     * @param index
+     * @return Board.UP, Board.DOWN, Board.LEFT или Board.RIGHT
+     */
+    public int move(int index) {
+        return this.moves[index];
+    }
+
+    /**
+     * Данный метод возвращает копию ходов решения.
+     *
+     * @return ходы пустой клетки
+     */
+    public byte[] toBytes() {
+        return this.moves.clone();
+    }
+
+    /**
+     * Данный метод возвращает копию изначального board.
+     *
+     * @return initial
+     */
+    public Board initial() {
+        return new Board(this.initial);
+    }
+
+    /**
+     * \brief Данный метод возвращает решение в виде строки ходов пустой клетки.
+     * \details Буквы U, D, L, R - ход пустой клетки вверх, вниз, влево и вправо.
+     *
+     * @return строка ходов
+     */
+    @Override
+    public String toString() {
+        char[] letters = new char[this.moves.length];
+        for (int i = 0; i < letters.length; i++)
+            letters[i] = LETTERS.charAt(this.moves[i]);
+        return new String(letters);
+    }
+
+    /**
+     * \brief Данный метод перебирает board решения от изначального до целевого.
+     * \details Каждый следующий board получается ходом на одном изменяемом board,
+     * наружу отдаётся его копия, поэтому одновременно в памяти только те board, которые хранит вызывающий.
+     *
+     * @return итератор по length() + 1 board
+     */
+    @Override
+    public Iterator<Board> iterator() {
+        return new Iterator<Board>() {
+            private final Board board = new Board(initial);
+            private int index = -1;
+
+            @Override
+            public boolean hasNext() {
+                return this.index < moves.length;
+            }
+
+            @Override
+            public Board next() {
+                if (!this.hasNext())
+                    throw new NoSuchElementException();
+                if (this.index >= 0)
+                    this.board.apply(moves[this.index]);
+                this.index++;
+                return new Board(this.board);
+            }
+        };
+    }
+
+    /**
+     * Данный метод создаёт курсор, стоящий на изначальном board.
+     *
+     * @return cursor
+     */
+    public Cursor cursor() {
+        return new Cursor(new Board(this.initial));
+    }
+
+    /**
+     * \brief Данный метод создаёт курсор, который двигается по решению на board вызывающего (например, Field).
+     *
+     * @param board board, равный изначальному; меняется при движении курсора
+     * @return cursor
+     * @throws IllegalArgumentException если board не равен изначальному
+     */
+    public Cursor cursor(Board board) {
+        if (!this.initial.equals(new Board(board)))
+            throw new IllegalArgumentException("Board differs from the initial board of the solution");
+        return new Cursor(board);
+    }
+
+    /**
+     * \brief Данный класс - положение в решении на одном изменяемом board.
+     * \details Шаг вперёд и назад - один сдвиг клетки, O(1) по времени и без выделения памяти.
+     */
+    public class Cursor {
+        private final Board board;
+        private int position = 0;
+
+        /**
+         * @param board
+         */
+        private Cursor(Board board) {
+            this.board = board;
+        }
+
+        /**
+         * Данный метод возвращает текущий board; он меняется при движении курсора.
+         *
+         * @return board
+         */
+        public Board board() {
+            return this.board;
+        }
+
+        /**
+         * Данный метод возвращает номер текущего board (0 - изначальный, length() - целевой).
+         *
+         * @return this.position
+         */
+        public int position() {
+            return this.position;
+        }
+
+        /**
+         * Данный метод возвращает следующий ход решения, не делая его.
+         *
+         * @return Board.UP, Board.DOWN, Board.LEFT, Board.RIGHT или -1, если курсор на целевом board
+         */
+        public int nextMove() {
+            return this.position == moves.length ? -1 : moves[this.position];
+        }
+
+        /**
+         * Данный метод делает следующий ход решения.
+         *
+         * @return false, если курсор уже на целевом board
+         */
+        public boolean forward() {
+            if (this.position == moves.length)
+                return false;
+            this.board.apply(moves[this.position++]);
+            return true;
+        }
+
+        /**
+         * Данный метод отменяет предыдущий ход решения.
+         *
+         * @return false, если курсор уже на изначальном board
+         */
+        public boolean back() {
+            if (this.position == 0)
+                return false;
+            this.board.undo(moves[--this.position]);
+            return true;
+        }
+    }
+}
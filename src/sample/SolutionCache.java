@@ -0,0 +1,343 @@
+package sample;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - ограниченный кэш решений с вытеснением давно не использованных (LRU).
+ * \details Board и его отражение относительно главной диагонали с перенумерованными клетками (клетка,
+ * которая в цели стоит в (r, c), заменяется клеткой из (c, r)) решаются одинаковым числом ходов: ходы
+ * отражения получаются заменой UP на LEFT и DOWN на RIGHT (direction ^ 2). Поэтому ключ кэша - каноническая
+ * форма, меньший по клеткам из двух board, и решение хранится один раз в её ориентации, а при попадании
+ * отражённый запрос получает ходы, отражённые обратно.
+ *
+ * Для каждого решения запоминается, оптимально ли оно: оптимальные алгоритмы берут из кэша только оптимальные
+ * решения. Все методы потокобезопасны (общая блокировка), счётчики попаданий, промахов и вытеснений атомарные.
+ * Кэш можно сохранить в файл и загрузить из него (save(), load()); общий экземпляр shared() делает это сам,
+ * если задано свойство solver.cacheFile.
+ */
+public class SolutionCache {
+    private static final int MAGIC = 0x534C4331;
+    private static SolutionCache shared = null;
+    private static boolean sharedCreated = false;
+
+    /**
+     * Данный класс - решение в канонической ориентации.
+     */
+    private static final class Cached {
+        private final byte[] moves;
+        private final boolean optimal;
+
+        /**
+         * @param moves
+         * @param optimal
+         */
+        Cached(byte[] moves, boolean optimal) {
+            this.moves = moves;
+            this.optimal = optimal;
+        }
+    }
+
+    private final int capacity;
+    private final Map<Board, Cached> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity наибольшее количество решений
+     */
+    public SolutionCache(final int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Board, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Board, Cached> eldest) {
+                if (this.size() <= capacity)
+                    return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * \brief Данный метод возвращает общий для процесса кэш.
+     * \details Размер задаётся свойством solver.cache (по умолчанию 10000 решений, 0 - кэш выключен).
+     * Если задано свойство solver.cacheFile, кэш загружается из файла и сохраняется в него при завершении процесса.
+     *
+     * @return кэш или null, если он выключен
+     */
+    public static synchronized SolutionCache shared() {
+        if (sharedCreated)
+            return shared;
+        sharedCreated = true;
+        int capacity = Integer.getInteger("solver.cache", 10000);
+        if (capacity <= 0)
+            return null;
+        final SolutionCache cache = new SolutionCache(capacity);
+        String fileName = System.getProperty("solver.cacheFile");
+        if (fileName != null) {
+            final File file = new File(fileName);
+            try {
+                cache.load(file);
+            } catch (IOException e) {
+                System.err.println("Solution cache ignored: " + e.getMessage());
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        cache.save(file);
+                    } catch (IOException e) {
+                        System.err.println("Solution cache is not saved: " + e.getMessage());
+                    }
+                }
+            }, "solution-cache-save"));
+        }
+        shared = cache;
+        return cache;
+    }
+
+    /**
+     * \brief Данный метод ищет решение board.
+     * \details Ключ - всегда Board (не подкласс, например Field), т.к. Board.equals() сравнивает классы.
+     *
+     * @param board
+     * @param optimal true - подходит только оптимальное решение
+     * @return ходы пустой клетки или null, если решения в кэше нет
+     */
+    public int[] get(Board board, boolean optimal) {
+        Board transposed = transpose(board);
+        boolean reflect = less(transposed, board);
+        Board key = reflect ? transposed : new Board(board);
+        Cached entry;
+        synchronized (this) {
+            entry = this.entries.get(key);
+        }
+        if (entry == null || optimal && !entry.optimal) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        this.hits.incrementAndGet();
+        int[] path = new int[entry.moves.length];
+        for (int i = 0; i < path.length; i++)
+            path[i] = reflect ? entry.moves[i] ^ 2 : entry.moves[i];
+        return path;
+    }
+
+    /**
+     * \brief Данный метод запоминает решение.
+     * \details Оптимальное решение не заменяется неоптимальным.
+     *
+     * @param solution
+     * @param optimal оптимально ли решение
+     */
+    public void put(Solution solution, boolean optimal) {
+        Board board = solution.initial();
+        Board transposed = transpose(board);
+        boolean reflect = less(transposed, board);
+        byte[] moves = solution.toBytes();
+        if (reflect)
+            for (int i = 0; i < moves.length; i++)
+                moves[i] ^= 2;
+        Board key = reflect ? transposed : new Board(board);
+        synchronized (this) {
+            Cached old = this.entries.get(key);
+            if (old == null || optimal || !old.optimal)
+                this.entries.put(key, new Cached(moves, optimal));
+        }
+    }
+
+    /**
+     * \brief Данный метод строит отражение board относительно главной диагонали с перенумерованными клетками.
+     * \details Клетка value, цель которой - (r, c), попадает из (row, col) в (col, row) и получает номер цели (c, r).
+     * Пустая клетка в цели стоит на диагонали, поэтому остаётся пустой, и отражение решаемого board решаемо.
+     *
+     * @param board
+     * @return отражённый board
+     */
+    static Board transpose(Board board) {
+        int n = board.dimension();
+        int[] cells = new int[n * n];
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                int value = board.tileAt(row, col);
+                cells[col * n + row] = value == 0 ? 0 : ((value - 1) % n) * n + (value - 1) / n + 1;
+            }
+        }
+        return new Board(n, cells);
+    }
+
+    /**
+     * Данный метод сравнивает board одной размерности по клеткам (по строкам).
+     *
+     * @param a
+     * @param b
+     * @return true, если a меньше b
+     */
+    private static boolean less(Board a, Board b) {
+        int cells = a.dimension() * a.dimension();
+        for (int i = 0; i < cells; i++)
+            if (a.tile(i) != b.tile(i))
+                return a.tile(i) < b.tile(i);
+        return false;
+    }
+
+    /**
+     * \brief Данный метод записывает кэш в файл, от давно не использованных решений к недавним.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        List<Board> boards;
+        List<Cached> solutions;
+        synchronized (this) {
+            boards = new ArrayList<Board>(this.entries.keySet());
+            solutions = new ArrayList<Cached>(this.entries.values());
+        }
+        File partial = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(boards.size());
+            for (int k = 0; k < boards.size(); k++) {
+                Board board = boards.get(k);
+                int cells = board.dimension() * board.dimension();
+                out.writeShort(board.dimension());
+                for (int i = 0; i < cells; i++)
+                    out.writeShort(board.tile(i));
+                out.writeBoolean(solutions.get(k).optimal);
+                out.writeInt(solutions.get(k).moves.length);
+                out.write(solutions.get(k).moves);
+            }
+        }
+        if (file.exists() && !file.delete() || !partial.renameTo(file))
+            throw new IOException("Cannot replace " + file);
+    }
+
+    /**
+     * \brief Данный метод добавляет в кэш решения из файла, записанного save().
+     * \details Решения добавляются в порядке файла, поэтому недавние остаются недавними;
+     * если файл больше кэша, старейшие вытесняются. Каждое решение проверяется: оно проигрывается на board
+     * и должно состоять из допустимых ходов и заканчиваться целью, иначе устаревший или испорченный файл
+     * выдавал бы неверные решения. Решения, прочитанные до ошибки, остаются в кэше.
+     *
+     * @param file
+     * @return количество прочитанных решений (0, если файла нет)
+     * @throws IOException если файл повреждён, не читается или содержит неверное решение
+     */
+    public int load(File file) throws IOException {
+        if (!file.isFile())
+            return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Bad header in " + file);
+            int count = in.readInt();
+            for (int k = 0; k < count; k++) {
+                int dimension = in.readShort();
+                if (dimension < 1 || dimension > Board.MAX_DIMENSION)
+                    throw new IOException("Bad dimension " + dimension + " in " + file);
+                int[] cells = new int[dimension * dimension];
+                for (int i = 0; i < cells.length; i++)
+                    cells[i] = in.readShort() & 0xFFFF;
+                boolean optimal = in.readBoolean();
+                int length = in.readInt();
+                if (length < 0 || length > file.length())
+                    throw new IOException("Bad solution length " + length + " in " + file);
+                byte[] moves = new byte[length];
+                in.readFully(moves);
+                Board board;
+                try {
+                    board = new Board(dimension, cells);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Bad board in " + file + ": " + e.getMessage(), e);
+                }
+                Board key = new Board(board);
+                if (!solves(board, moves))
+                    throw new IOException("Entry " + k + " in " + file + " does not solve its board");
+                synchronized (this) {
+                    this.entries.put(key, new Cached(moves, optimal));
+                }
+            }
+            return count;
+        } catch (EOFException e) {
+            throw new IOException("Truncated " + file, e);
+        }
+    }
+
+    /**
+     * Данный метод проигрывает ходы на board (board изменяется) и проверяет, что они приводят к цели.
+     *
+     * @param board
+     * @param moves
+     * @return true, если все ходы допустимы и последний board - цель
+     */
+    private static boolean solves(Board board, byte[] moves) {
+        for (byte move : moves)
+            if (move < Board.UP || move > Board.RIGHT || !board.apply(move))
+                return false;
+        return board.isGoal();
+    }
+
+    /**
+     * Данный метод возвращает количество решений в кэше.
+     *
+     * @return размер
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Данный метод возвращает наибольшее количество решений.
+     *
+     * @return this.capacity
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Данный метод возвращает количество попаданий.
+     *
+     * @return this.hits
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Данный метод возвращает количество промахов.
+     *
+     * @return this.misses
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Данный метод возвращает количество вытесненных решений.
+     *
+     * @return this.evictions
+     */
+    public long evictions() {
+        return this.evictions.get();
+    }
+}
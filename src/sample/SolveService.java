@@ -0,0 +1,476 @@
+package sample;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - долго работающий локальный сервис решения головоломок по HTTP/JSON.
+ * \details Сервис запускается один раз, поэтому все запросы решаются уже прогретым (скомпилированным JIT) кодом.
+ * Используется встроенный в JDK com.sun.net.httpserver; каждый запрос обрабатывается в своём виртуальном потоке
+ * (Executors.newVirtualThreadPerTaskExecutor() находится через reflection, на JDK без виртуальных потоков
+ * используется обычный пул потоков).
+ *
+ * POST /solve принимает {"board": [[1, 2, 3], [4, 5, 6], [7, 8, 0]], "engine": "ida", "heuristic": "linear"}
+ * (board можно передать и одним массивом из N^2 чисел, engine и heuristic необязательны) и возвращает
+ * {"solvable": true, "moves": 4, "path": "RDRD", "solution": [[...], ...], "nodes": 4, "ms": 0.1, "coalesced": false}.
+ * GET /stats возвращает счётчики сервиса, итоги SolverStats и счётчики кэша решений SolutionCache.
+ *
+ * Одинаковые board, решаемые одновременно, объединяются: решает только первый запрос, остальные ждут его
+ * CompletableFuture. Тяжёлых поисков (board больше 3x3, не решаемых таблицей LookupTable) одновременно
+ * выполняется не больше heavyLimit: это количество ядер, но не больше, чем помещается в 3/4 памяти JVM
+ * по searchMemory байт на поиск. Запрос, не дождавшийся места за queueMillis, получает 503.
+ * Поиск ограничен SearchBudget(timeLimit, nodeLimit); прерванный поиск возвращает 422.
+ */
+public class SolveService {
+    private static final int MAX_BODY = 1 << 20;
+
+    private final Semaphore heavy;
+    private final int heavyLimit;
+    private final long queueMillis;
+    private final long timeLimit;
+    private final long nodeLimit;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight =
+            new ConcurrentHashMap<String, CompletableFuture<String>>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * \brief Данное исключение - ответ на запрос с кодом HTTP, отличным от 200.
+     */
+    static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        /**
+         * @param status код HTTP
+         * @param message
+         */
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * @param searchMemory оценка памяти одного тяжёлого поиска в байтах
+     * @param queueMillis сколько запрос ждёт места для тяжёлого поиска
+     * @param timeLimit ограничение поиска по времени в миллисекундах, 0 - без ограничения
+     * @param nodeLimit ограничение поиска по раскрытым узлам, 0 - без ограничения
+     */
+    public SolveService(long searchMemory, long queueMillis, long timeLimit, long nodeLimit) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        long byMemory = Runtime.getRuntime().maxMemory() / 4 * 3 / Math.max(1, searchMemory);
+        this.heavyLimit = (int) Math.max(1, Math.min(cpus, byMemory));
+        this.heavy = new Semaphore(this.heavyLimit, true);
+        this.queueMillis = queueMillis;
+        this.timeLimit = timeLimit;
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * \brief Данный метод запускает HTTP-сервер на локальном адресе.
+     *
+     * @param port 0 - любой свободный порт
+     * @return фактический порт
+     * @throws IOException
+     */
+    public int start(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = requestExecutor();
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/solve", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, error("POST a board to /solve"));
+                    return;
+                }
+                requests.incrementAndGet();
+                try {
+                    respond(exchange, 200, solve(readBody(exchange)));
+                } catch (HttpError e) {
+                    if (e.status == 503)
+                        rejected.incrementAndGet();
+                    else
+                        failed.incrementAndGet();
+                    respond(exchange, e.status, error(e.getMessage()));
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    respond(exchange, 500, error(e.toString()));
+                }
+            }
+        });
+        this.server.createContext("/stats", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, stats());
+            }
+        });
+        this.server.start();
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Данный метод останавливает сервер, дав текущим запросам delaySeconds на завершение.
+     *
+     * @param delaySeconds
+     */
+    public void stop(int delaySeconds) {
+        this.server.stop(delaySeconds);
+        this.executor.shutdown();
+    }
+
+    /**
+     * \brief Данный метод создаёт исполнителя запросов: виртуальный поток на запрос, если JDK их поддерживает.
+     *
+     * @return executor
+     */
+    static ExecutorService requestExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * \brief Данный метод решает board из тела запроса, объединяя одинаковые одновременные запросы.
+     * \details Ключ объединения - алгоритм, эвристика и клетки board. Первый запрос кладёт свой CompletableFuture
+     * в inFlight, решает и убирает его; запросы, нашедшие там future, ждут тот же ответ. Future завершается
+     * при любом исходе, в том числе при Error, иначе ждущие запросы висели бы вечно.
+     *
+     * @param body JSON запроса
+     * @return JSON ответа
+     * @throws HttpError
+     */
+    String solve(String body) {
+        final int[] tiles = numbers(body, "board");
+        final int n = validate(tiles);
+        final String engine = string(body, "engine");
+        final String heuristic = string(body, "heuristic");
+        final Solver.Engine kind;
+        try {
+            kind = Solver.Engine.forName(engine);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, e.getMessage());
+        }
+        StringBuilder key = new StringBuilder();
+        key.append(kind).append('/').append(heuristic == null ? "" : heuristic.toLowerCase());
+        for (int tile : tiles)
+            key.append(',').append(tile);
+
+        CompletableFuture<String> mine = new CompletableFuture<String>();
+        CompletableFuture<String> existing = this.inFlight.putIfAbsent(key.toString(), mine);
+        if (existing != null) {
+            this.coalesced.incrementAndGet();
+            try {
+                return existing.get().replace("\"coalesced\": false", "\"coalesced\": true");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpError(503, "interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof HttpError)
+                    throw (HttpError) e.getCause();
+                throw new HttpError(500, String.valueOf(e.getCause()));
+            }
+        }
+        try {
+            String result = this.compute(tiles, n, kind, heuristic);
+            mine.complete(result);
+            return result;
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key.toString(), mine);
+        }
+    }
+
+    /**
+     * \brief Данный метод решает board, занимая место для тяжёлого поиска, если board не решается таблицей.
+     *
+     * @param tiles
+     * @param n
+     * @param engine
+     * @param heuristic
+     * @return JSON ответа
+     */
+    private String compute(int[] tiles, int n, Solver.Engine engine, String heuristic) {
+        Board initial = new Board(n, tiles);
+        Heuristic h;
+        try {
+            h = Heuristic.forName(heuristic, n);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, e.getMessage());
+        }
+        boolean isHeavy = initial.isSolvable() && !initial.isGoal() && LookupTable.forDimension(n) == null;
+        if (isHeavy) {
+            try {
+                if (!this.heavy.tryAcquire(this.queueMillis, TimeUnit.MILLISECONDS))
+                    throw new HttpError(503, "busy: " + this.heavyLimit + " searches running");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HttpError(503, "interrupted");
+            }
+        }
+        try {
+            Solver solver = new Solver(initial, engine, h, new SearchBudget(this.timeLimit, this.nodeLimit));
+            return result(solver);
+        } catch (SearchAbortedException e) {
+            throw new HttpError(422, "stopped (" + e.getMessage() + ") after " + e.expanded() + " nodes");
+        } catch (OutOfMemoryError e) {
+            throw new HttpError(422, "out of memory");
+        } finally {
+            if (isHeavy)
+                this.heavy.release();
+        }
+    }
+
+    /**
+     * Данный метод записывает решение в JSON.
+     *
+     * @param solver
+     * @return JSON ответа
+     */
+    private static String result(Solver solver) {
+        StringBuilder s = new StringBuilder("{\"solvable\": ").append(solver.isSolvable());
+        if (solver.isSolvable()) {
+            s.append(", \"moves\": ").append(solver.moves());
+            s.append(", \"path\": \"").append(solver.moveString()).append('"');
+            s.append(", \"solution\": [");
+            boolean first = true;
+            for (Board board : solver.solution()) {
+                s.append(first ? "[" : ", [");
+                first = false;
+                int cells = board.dimension() * board.dimension();
+                for (int i = 0; i < cells; i++)
+                    s.append(i > 0 ? ", " : "").append(board.tile(i));
+                s.append(']');
+            }
+            s.append(']');
+        }
+        SearchMetrics metrics = solver.metrics();
+        s.append(", \"engine\": \"").append(metrics.engine()).append('"');
+        s.append(", \"nodes\": ").append(metrics.expanded());
+        s.append(String.format(", \"suboptimality\": %.3f", metrics.suboptimality()));
+        s.append(String.format(", \"ms\": %.3f", metrics.totalNanos() / 1e6));
+        return s.append(", \"coalesced\": false}").toString();
+    }
+
+    /**
+     * Данный метод возвращает счётчики сервиса и итоги решений в JSON.
+     *
+     * @return JSON
+     */
+    String stats() {
+        SolverStats stats = SolverStats.get();
+        SolutionCache cache = SolutionCache.shared();
+        String cached = cache == null ? "" : ", \"cacheSize\": " + cache.size() + ", \"cacheHits\": " + cache.hits()
+                + ", \"cacheMisses\": " + cache.misses() + ", \"cacheEvictions\": " + cache.evictions();
+        return "{\"requests\": " + this.requests.get() + ", \"coalesced\": " + this.coalesced.get()
+                + ", \"rejected\": " + this.rejected.get() + ", \"failed\": " + this.failed.get()
+                + ", \"inFlight\": " + this.inFlight.size() + ", \"heavyLimit\": " + this.heavyLimit
+                + ", \"heavyRunning\": " + (this.heavyLimit - this.heavy.availablePermits())
+                + ", \"solves\": " + stats.getSolves() + ", \"aborted\": " + stats.getAborted()
+                + ", \"nodesExpanded\": " + stats.getNodesExpanded() + cached + "}";
+    }
+
+    /**
+     * \brief Данный метод проверяет, что клетки - перестановка чисел от 0 до N^2 - 1,
+     * а размерность N поддерживается Board (от 2 до Board.MAX_DIMENSION).
+     *
+     * @param tiles
+     * @return N
+     * @throws HttpError 400, если это не board
+     */
+    static int validate(int[] tiles) {
+        int n = (int) Math.round(Math.sqrt(tiles.length));
+        if (n < 2 || n * n != tiles.length)
+            throw new HttpError(400, "board must be a square of at least 2x2, got " + tiles.length + " cells");
+        if (n > Board.MAX_DIMENSION)
+            throw new HttpError(400, "board must be at most " + Board.MAX_DIMENSION + "x" + Board.MAX_DIMENSION
+                    + ", got " + n + "x" + n);
+        boolean[] seen = new boolean[tiles.length];
+        for (int tile : tiles) {
+            if (tile < 0 || tile >= tiles.length || seen[tile])
+                throw new HttpError(400, "board must contain each of 0.." + (tiles.length - 1) + " once");
+            seen[tile] = true;
+        }
+        return n;
+    }
+
+    /**
+     * \brief Данный метод находит в JSON массив field и возвращает все целые числа в нём (на любой глубине).
+     *
+     * @param json
+     * @param field
+     * @return числа
+     * @throws HttpError 400, если массива нет или он не закрыт
+     */
+    static int[] numbers(String json, String field) {
+        int at = json.indexOf('"' + field + '"');
+        int open = at < 0 ? -1 : json.indexOf('[', at);
+        if (open < 0)
+            throw new HttpError(400, "missing \"" + field + "\" array");
+        List<Integer> values = new ArrayList<Integer>();
+        int depth = 0;
+        for (int i = open; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                if (--depth == 0) {
+                    int[] result = new int[values.size()];
+                    for (int k = 0; k < result.length; k++)
+                        result[k] = values.get(k);
+                    return result;
+                }
+            } else if (c == '-' || Character.isDigit(c)) {
+                int end = i + 1;
+                while (end < json.length() && Character.isDigit(json.charAt(end)))
+                    end++;
+                try {
+                    values.add(Integer.parseInt(json.substring(i, end)));
+                } catch (NumberFormatException e) {
+                    throw new HttpError(400, "bad number in \"" + field + "\"");
+                }
+                i = end - 1;
+            } else if (c != ',' && !Character.isWhitespace(c)) {
+                throw new HttpError(400, "unexpected '" + c + "' in \"" + field + "\"");
+            }
+        }
+        throw new HttpError(400, "unterminated \"" + field + "\" array");
+    }
+
+    /**
+     * Данный метод находит в JSON строковое поле field.
+     *
+     * @param json
+     * @param field
+     * @return значение или null, если поля нет
+     * @throws HttpError 400, если значение поля - не строка (например, null)
+     */
+    static String string(String json, String field) {
+        int at = json.indexOf('"' + field + '"');
+        if (at < 0)
+            return null;
+        int colon = json.indexOf(':', at + field.length() + 2);
+        int open = colon + 1;
+        while (colon >= 0 && open < json.length() && Character.isWhitespace(json.charAt(open)))
+            open++;
+        int close = colon < 0 || open >= json.length() || json.charAt(open) != '"' ? -1 : json.indexOf('"', open + 1);
+        if (close < 0)
+            throw new HttpError(400, "\"" + field + "\" must be a string");
+        return json.substring(open + 1, close);
+    }
+
+    /**
+     * Данный метод экранирует строку для JSON и возвращает объект с ошибкой.
+     *
+     * @param message
+     * @return {"error": message}
+     */
+    private static String error(String message) {
+        return "{\"error\": \"" + String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    /**
+     * Данный метод читает тело запроса, не больше MAX_BODY байт.
+     *
+     * @param exchange
+     * @return тело в UTF-8
+     * @throws IOException
+     */
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY)
+                throw new HttpError(413, "request body is larger than " + MAX_BODY + " bytes");
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Данный метод отправляет ответ в JSON и закрывает обмен.
+     *
+     * @param exchange
+     * @param status
+     * @param json
+     * @throws IOException
+     */
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * \brief Данный метод запускает сервис.
+     * \details Ключи: -port=P (8080), -memory=MB (оценка памяти одного тяжёлого поиска, 512),
+     * -queue=MS (ожидание места, 10000), -timeLimit=MS (60000), -nodeLimit=K (0 - без ограничения).
+     * Пример: java -Xmx4g sample.SolveService -port=8080
+     * curl -d '{"board": [[1,2,3],[4,5,6],[7,0,8]]}' http://localhost:8080/solve
+     *
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        long memory = 512;
+        long queue = 10000;
+        long timeLimit = 60000;
+        long nodeLimit = 0;
+        for (String arg : args) {
+            if (arg.startsWith("-port="))
+                port = Integer.parseInt(arg.substring("-port=".length()));
+            else if (arg.startsWith("-memory="))
+                memory = Long.parseLong(arg.substring("-memory=".length()));
+            else if (arg.startsWith("-queue="))
+                queue = Long.parseLong(arg.substring("-queue=".length()));
+            else if (arg.startsWith("-timeLimit="))
+                timeLimit = Long.parseLong(arg.substring("-timeLimit=".length()));
+            else if (arg.startsWith("-nodeLimit="))
+                nodeLimit = Long.parseLong(arg.substring("-nodeLimit=".length()));
+        }
+        SolveService service = new SolveService(memory << 20, queue, timeLimit, nodeLimit);
+        port = service.start(port);
+        System.out.println("Listening on http://localhost:" + port + "/solve (" + service.heavyLimit + " heavy searches at once)");
+    }
+}
@@ -1,8 +1,8 @@
 package sample;
 import edu.princeton.cs.algs4.In;
-import edu.princeton.cs.algs4.MinPQ;
-import edu.princeton.cs.algs4.Stack;
 import edu.princeton.cs.algs4.StdOut;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * @author Stas.Maslov
@@ -13,178 +13,661 @@ import edu.princeton.cs.algs4.StdOut;
  * A*(эвристический поиск кратчайших путей в графе)
  */
 public class Solver {
-    private Node target = null;
-    private Board init;
-    private boolean solvable = false;
     /**
-     * \brief Данный класс, представляет из себя узёл, котоырй в дальнейшем будет
-     * использоваться в алгоритме A*(star), для создания очередей.
-     *
+     * \brief Данное перечисление задаёт алгоритм поиска решения.
+     * \details ASTAR - A* с приоритетной очередью, IDASTAR - A* с итеративным углублением,
+     * которому требуется память, пропорциональная длине решения, PARALLEL - HDA* на всех ядрах
+     * (количество потоков задаётся свойством solver.threads), EXTERNAL - External A* с фронтом поиска на диске
+     * (каталог - свойство solver.scratch, память под буферы в мегабайтах - свойство solver.ram),
+     * REDUCTION - быстрое неоптимальное решение сведением к меньшему board (ReductionSolver, размер области,
+     * решаемой оптимально, - свойство solver.finish, 3 или 4), ANYTIME - ARA* (AnytimeSolver): первое решение
+     * с весом эвристики solver.weight (по умолчанию 3), затем улучшение до исчерпания бюджета или памяти solver.ram,
+     * BIDIRECTIONAL - двунаправленный MM (BidirectionalSolver), оптимальный, встреча прямого и обратного поиска, AUTO - ASTAR для board до AUTO_OPTIMAL_LIMIT, иначе REDUCTION.
      */
-    public class Node implements Comparable<Node> {
-        private final Board board;
-        private final int moves;
-        private final Node prev;
-        private final int priority;
+    public enum Engine {
+        ASTAR, IDASTAR, PARALLEL, EXTERNAL, REDUCTION, ANYTIME, BIDIRECTIONAL, AUTO;
 
         /**
-         * \brief данный конструктор присваивает значения private final
-         * переменным, тем самым создаёт узел.
-         * \details Узлу присваиваются значения  входящего board
-         * устанавливается указатель на предыдуищй узел, также находится количество
-         * движений пустой ячейки, с помощью которых мы попали в данный board.
-         * также устанавливается приоритетность данного узла.
+         * Данный метод находит алгоритм по имени ("astar", "ida", "idastar", "parallel", "hda", "external", "disk",
+         * "reduction", "fast", "anytime", "ara", "bidirectional", "mm", "auto"), без учёта регистра.
          *
-         * @param newBoard
-         * @param previous
+         * @param name
+         * @return engine, по умолчанию (name == null) AUTO, для неизвестного имени - ASTAR
          */
-        public Node(Board newBoard, Node previous) {
-            this.board = newBoard;
-            this.prev = previous;
-            if (previous == null)
-                this.moves = 0;
-            else this.moves = previous.moves + 1;
-            this.priority = newBoard.manhattan() + this.moves;
+        public static Engine fromName(String name) {
+            try {
+                return forName(name);
+            } catch (IllegalArgumentException e) {
+                return ASTAR;
+            }
         }
-        @Override
+
         /**
-         * \brief Данный метод сравнивает приоритеты двух узлов.
+         * Данный метод находит алгоритм по имени так же, как fromName(), но не подставляет ASTAR вместо неизвестного.
+         *
+         * @param name
+         * @return engine, по умолчанию (name == null) AUTO
+         * @throws IllegalArgumentException если имя неизвестно
          */
-        public int compareTo(Node that) {
-            if (this.priority > that.priority) return 1;
-            if (this.priority < that.priority) return -1;
-            return 0;
+        public static Engine forName(String name) {
+            if (name == null)
+                return AUTO;
+            switch (name.toLowerCase()) {
+                case "astar":
+                    return ASTAR;
+                case "ida":
+                case "idastar":
+                    return IDASTAR;
+                case "parallel":
+                case "hda":
+                    return PARALLEL;
+                case "external":
+                case "disk":
+                    return EXTERNAL;
+                case "reduction":
+                case "fast":
+                    return REDUCTION;
+                case "anytime":
+                case "ara":
+                    return ANYTIME;
+                case "bidirectional":
+                case "mm":
+                    return BIDIRECTIONAL;
+                case "auto":
+                    return AUTO;
+                default:
+                    throw new IllegalArgumentException("Unknown engine: " + name);
+            }
+        }
+
+        /**
+         * Данный метод выбирает алгоритм AUTO по размеру board.
+         *
+         * @param dimension
+         * @return ASTAR для board до AUTO_OPTIMAL_LIMIT, иначе REDUCTION
+         */
+        public static Engine forDimension(int dimension) {
+            return dimension <= AUTO_OPTIMAL_LIMIT ? ASTAR : REDUCTION;
         }
     }
 
+    /** Наибольший board, который в режиме AUTO решается оптимально. */
+    public static final int AUTO_OPTIMAL_LIMIT = 4;
+
+    private Solution target = null;
+    private Board init;
+    private TimedHeuristic heuristic;
+    private SearchBudget budget;
+    private SearchMetrics.Listener listener;
+    private boolean solvable = false;
+    private final SearchMetrics metrics = new SearchMetrics();
     /**
      * Данный конструктор имеет входящие данные - изначальынй board.
      * После проверяется, является ли данный board уже решённым,
-     * если да, то переменнаая target создаёт итоговый узел.
+     * если да, то переменнаая target - решение без ходов.
      * Если нет, то запускается решение данного board и вызывается
      * функция startSolving().
      * @param initial
      */
     public Solver(Board initial) {
+        this(initial, Engine.ASTAR);
+    }
+
+    /**
+     * Данный конструктор решает изначальный board выбранным алгоритмом engine
+     * с эвристикой по умолчанию (Heuristic.defaultFor()).
+     * @param initial
+     * @param engine
+     */
+    public Solver(Board initial, Engine engine) {
+        this(initial, engine, Heuristic.defaultFor(initial.dimension()));
+    }
+
+    /**
+     * Данный конструктор решает изначальный board выбранным алгоритмом engine и эвристикой heuristic.
+     * @param initial
+     * @param engine
+     * @param heuristic
+     */
+    public Solver(Board initial, Engine engine, Heuristic heuristic) {
+        this(initial, engine, heuristic, new SearchBudget());
+    }
+
+    /**
+     * \brief Данный конструктор решает изначальный board выбранным алгоритмом engine и эвристикой heuristic,
+     * не выходя за бюджет budget.
+     * \details Бюджет позволяет отменить поиск из другого потока и получать сведения о его ходе.
+     * @param initial
+     * @param engine
+     * @param heuristic
+     * @param budget
+     * @throws SearchAbortedException если поиск отменён или исчерпал бюджет
+     */
+    public Solver(Board initial, Engine engine, Heuristic heuristic, SearchBudget budget) {
+        this(initial, engine, heuristic, budget, null);
+    }
+
+    /**
+     * \brief Данный конструктор решает board так же, как предыдущий, и передаёт listener
+     * снимки метрик решения при каждом отчёте бюджета.
+     * \details Метрики решения (в том числе прерванного) добавляются к итогам процесса SolverStats.
+     * Алгоритм ANYTIME, кроме того, передаёт listener каждое улучшенное решение (SearchMetrics.Listener.improved()).
+     * @param initial
+     * @param engine
+     * @param heuristic
+     * @param budget
+     * @param listener или null
+     * @throws SearchAbortedException если поиск отменён или исчерпал бюджет
+     */
+    public Solver(Board initial, Engine engine, Heuristic heuristic, SearchBudget budget, final SearchMetrics.Listener listener) {
+        if (engine == Engine.AUTO)
+            engine = Engine.forDimension(initial.dimension());
         this.init = initial;
-        if (initial.isGoal()) {
-            target = new Node (initial, null);
+        this.heuristic = new TimedHeuristic(heuristic);
+        this.budget = budget;
+        this.listener = listener;
+        this.metrics.engine = engine.name();
+        this.metrics.heuristic = heuristic.name();
+        if (listener != null) {
+            budget.addListener(new SearchBudget.Listener() {
+                @Override
+                public void progress(long expanded, int open, int bound, double nodesPerSecond) {
+                    metrics.expanded = expanded;
+                    metrics.open = open;
+                    metrics.bound = bound;
+                    if (open > metrics.peakOpen)
+                        metrics.peakOpen = open;
+                    listener.snapshot(metrics);
+                }
+            });
         }
-        else {
-            this.solvable = this.isSolvable();
-            if (this.solvable)
-                target = startSolving(initial);
+        budget.start();
+        long allocated = SearchMetrics.threadAllocatedBytes();
+        long start = System.nanoTime();
+        this.solvable = initial.isSolvable();
+        this.metrics.solvable = this.solvable;
+        this.metrics.solvabilityNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        try {
+            if (initial.isGoal()) {
+                target = new Solution(initial, new int[0]);
+            }
+            else {
+                if (this.solvable) {
+                    LookupTable table = Boolean.parseBoolean(System.getProperty("solver.lookup", "true"))
+                            ? LookupTable.forDimension(initial.dimension()) : null;
+                    SolutionCache cache = table == null ? SolutionCache.shared() : null;
+                    int[] cached = cache == null ? null : cache.get(initial, engine != Engine.REDUCTION);
+                    if (table != null)
+                        target = tableSolving(initial, table);
+                    else if (cached != null)
+                        target = cachedSolving(initial, cached);
+                    else if (engine == Engine.IDASTAR)
+                        target = idaSolving(initial);
+                    else if (engine == Engine.PARALLEL)
+                        target = parallelSolving(initial, heuristic);
+                    else if (engine == Engine.EXTERNAL)
+                        target = externalSolving(initial);
+                    else if (engine == Engine.REDUCTION)
+                        target = reductionSolving(initial);
+                    else if (engine == Engine.ANYTIME)
+                        target = anytimeSolving(initial);
+                    else if (engine == Engine.BIDIRECTIONAL)
+                        target = bidirectionalSolving(initial);
+                    else
+                        target = startSolving(initial);
+                    if (cache != null && cached == null)
+                        cache.put(target, engine != Engine.REDUCTION && this.metrics.suboptimality <= 1);
+                }
+            }
+            this.metrics.moves = this.moves();
+        } catch (SearchAbortedException e) {
+            this.metrics.aborted = true;
+            this.metrics.expanded = Math.max(this.metrics.expanded, e.expanded());
+            throw e;
+        } finally {
+            this.metrics.searchNanos = System.nanoTime() - start - this.metrics.reconstructionNanos;
+            this.metrics.heuristicCalls = this.heuristic.calls();
+            this.metrics.heuristicNanos = this.heuristic.nanos();
+            if (allocated >= 0)
+                this.metrics.allocatedBytes = Math.max(0, this.metrics.allocatedBytes)
+                        + SearchMetrics.threadAllocatedBytes() - allocated;
+            SolverStats.get().record(this.metrics);
         }
     }
 
     /**
-     * \brief Данный метод запускает решение головоломки с помощью алгоритма A*.
-     * создаются две приоритетные очереди, оригинал и twin,
-     * как мы помним twin отличается от оригинала тем, что
-     * в нём изменена пара элементом(местами друг с другом, не должны изменяться нулевая ячеейка
-     * и изменение происходит в одой строке).
-     *
-     * \details Изначально в обе очереди вставляются, данные Boardы,
-     * после чего начинается цикл, и соответсвенно поиск кратчайщего решения.
-     * Цикл, нахождения соседей, их добавления в приоритетные очереди и
-     * удаления узлов  из очередей с минимальным приоритетом, и если twinTree isGoal() – true,
-     * то данная board initial – не решаема,
-     * где board initial – это изначально введённый board.
+     * \brief Данный метод находит решение маленького board по таблице LookupTable, без поиска.
+     * \details Таблица используется для любого engine; отключается свойством solver.lookup=false
+     * (например, чтобы измерять сами алгоритмы поиска на 3x3).
      *
      * @param initial
+     * @param table
      *
+     * @return решение
+     */
+    private Solution tableSolving(Board initial, LookupTable table) {
+        this.metrics.engine = "TABLE";
+        int[] path = table.path(initial);
+        this.metrics.expanded = path.length;
+        this.metrics.generated = path.length;
+        return replay(initial, path);
+    }
+
+    /**
+     * \brief Данный метод берёт решение из общего кэша SolutionCache, без поиска.
+     * \details Кэш проверяется для board, которые не решаются по таблице; его размер задаётся свойством
+     * solver.cache (0 - выключен), файл для сохранения между запусками - свойством solver.cacheFile.
+     * Найденные поиском решения добавляются в кэш, неоптимальные (REDUCTION, прерванный ANYTIME) - с пометкой.
      *
-     * @return min
+     * @param initial
+     * @param path ходы из кэша
+     *
+     * @return решение
      */
-    private Node startSolving(Board initial) {
-        Node min;
-        MinPQ<Node> Tree = new MinPQ<Node>();
-        Tree.insert(new Node(initial, null));
-        while (true) {
-            min = Tree.delMin();
-            if (min.board.isGoal()) {
-                break;
-            }
-            saveNeighbors(min, Tree);
+    private Solution cachedSolving(Board initial, int[] path) {
+        this.metrics.engine = "CACHE";
+        return replay(initial, path);
+    }
+
+    /**
+     * \brief Данный метод запускает решение головоломки с помощью алгоритма IDA*.
+     * \details Найденная последовательность ходов превращается в решение методом replay(), как и в startSolving().
+     *
+     * @param initial
+     *
+     * @return решение
+     */
+    private Solution idaSolving(Board initial) {
+        IdaStar search = new IdaStar(initial, this.heuristic, this.budget);
+        int[] path;
+        try {
+            path = search.solve();
+        } finally {
+            this.metrics.iterations = search.iterations();
+            this.metrics.expanded = search.nodes();
+            this.metrics.generated = search.generated();
+            this.metrics.peakOpen = search.maxDepth();
         }
-        return min;
+        return replay(initial, path);
     }
 
     /**
-     * Данный метод сохраняет всех полученных соседей.
-     * при том не добавляет данного
-     * соседа если он равен предыдущему.
+     * \brief Данный метод запускает решение головоломки параллельным алгоритмом HDA*.
+     * \details Эвристика передаётся без обёртки TimedHeuristic, т.к. вызывается из нескольких потоков.
      *
-     * @param min
-     * @param currTree
+     * @param initial
+     * @param heuristic
+     *
+     * @return решение
      */
-    private void saveNeighbors(Node min, MinPQ<Node> currTree) {
-        for (Board n : min.board.neighbors()) {
-            if (min.prev == null) {
-                currTree.insert(new Node(n, min));
-            } else {
-                if (!n.equals(min.prev.board))
-                    currTree.insert(new Node(n, min));
+    private Solution parallelSolving(Board initial, Heuristic heuristic) {
+        int threads = Integer.getInteger("solver.threads", Runtime.getRuntime().availableProcessors());
+        ParallelSolver search = new ParallelSolver(initial, threads, heuristic, this.budget);
+        int[] path;
+        try {
+            path = search.solve();
+        } finally {
+            this.metrics.expanded = search.nodes();
+            this.metrics.generated = search.generated();
+            this.metrics.duplicates = search.duplicates();
+            this.metrics.peakOpen = search.peakOpen();
+            this.metrics.allocatedBytes = search.allocatedBytes();
+        }
+        return replay(initial, path);
+    }
+
+    /**
+     * \brief Данный метод запускает решение головоломки алгоритмом External A*, который хранит фронт поиска на диске.
+     * \details Файлы пишутся в подкаталог board (ExternalSolver) каталога из свойства solver.scratch
+     * (по умолчанию puzzle-search во временном каталоге), поэтому одновременные поиски друг другу не мешают;
+     * буферы в памяти ограничены свойством solver.ram (в мегабайтах, по умолчанию 256).
+     * Прерванный поиск продолжается с контрольной точки при следующем запуске для того же board.
+     *
+     * @param initial
+     *
+     * @return решение
+     */
+    private Solution externalSolving(Board initial) {
+        Path dir = Paths.get(System.getProperty("solver.scratch",
+                Paths.get(System.getProperty("java.io.tmpdir"), "puzzle-search").toString()));
+        long ram = Long.getLong("solver.ram", 256) << 20;
+        ExternalSolver search = new ExternalSolver(initial, this.heuristic, this.budget, dir, ram);
+        int[] path;
+        try {
+            path = search.solve();
+        } finally {
+            this.metrics.expanded = search.nodes();
+            this.metrics.generated = search.generated();
+            this.metrics.duplicates = search.duplicates();
+            this.metrics.peakOpen = search.peakBucket();
+        }
+        return replay(initial, path);
+    }
+
+    /**
+     * \brief Данный метод быстро, но неоптимально решает board сведением к меньшему (ReductionSolver).
+     * \details Последняя область solver.finish x solver.finish (по умолчанию 3) решается оптимально.
+     *
+     * @param initial
+     *
+     * @return решение
+     */
+    private Solution reductionSolving(Board initial) {
+        ReductionSolver search = new ReductionSolver(initial, Integer.getInteger("solver.finish", 3), this.budget);
+        int[] path;
+        try {
+            path = search.solve();
+        } finally {
+            this.metrics.expanded = search.nodes();
+        }
+        this.metrics.generated = path.length;
+        return replay(initial, path);
+    }
+
+    /**
+     * \brief Данный метод решает board алгоритмом ARA* (AnytimeSolver) с начальным весом solver.weight.
+     * \details В отличие от остальных алгоритмов, исчерпанный бюджет (или память solver.ram, в мегабайтах)
+     * не прерывает решение, если хотя бы одно решение уже найдено: возвращается лучшее,
+     * а его граница субоптимальности сохраняется в метриках. Каждое улучшенное решение передаётся listener.
+     *
+     * @param initial
+     *
+     * @return решение
+     */
+    private Solution anytimeSolving(Board initial) {
+        double weight = Double.parseDouble(System.getProperty("solver.weight", "3"));
+        long ram = Long.getLong("solver.ram", 256) << 20;
+        final SearchMetrics.Listener listener = this.listener;
+        AnytimeSolver.Listener improved = listener == null ? null : new AnytimeSolver.Listener() {
+            @Override
+            public void improved(int[] path, double suboptimality) {
+                metrics.moves = path.length;
+                metrics.suboptimality = suboptimality;
+                listener.improved(metrics, path);
             }
+        };
+        AnytimeSolver search = new AnytimeSolver(initial, this.heuristic, this.budget, weight, ram, improved);
+        int[] path;
+        try {
+            path = search.solve();
+        } finally {
+            this.metrics.iterations = search.iterations();
+            this.metrics.expanded = search.nodes();
+            this.metrics.generated = search.generated();
+            this.metrics.duplicates = search.duplicates();
+            this.metrics.peakOpen = search.peakOpen();
         }
+        this.metrics.suboptimality = search.suboptimality();
+        return replay(initial, path);
     }
 
     /**
-     * С помощью данного метода проверяется решена ли игра или нет
+     * \brief Данный метод находит кратчайшее решение двунаправленным алгоритмом MM (BidirectionalSolver).
+     * \details Эвристика используется в прямом поиске, обратный поиск оценивает расстояние до изначального board
+     * манхэтенским числом.
+     *
+     * @param initial
      *
-     * @return target;
+     * @return решение
      */
-    public boolean isSolvable(){
-        int sum = 0;
-        int zeroRow = 0;
-        for (int i = 0; i < this.init.dimension(); i++) {
-            for (int j = 0; j < this.init.dimension(); j++) {
-                if (this.init.board[i][j] == 0) {
-                    zeroRow = i + 1;
-                }
-                if (this.init.board[i][j] != 0) {
-                    for (int row = 0; row <= i; row++) {
-                        for (int coll = 0; row == i ? coll < j : coll < this.init.dimension(); coll++) {
-                                if (this.init.board[i][j] < this.init.board[row][coll])
-                                    sum++;
-                        }
-                    }
-                }
+    private Solution bidirectionalSolving(Board initial) {
+        BidirectionalSolver search = new BidirectionalSolver(initial, this.heuristic, this.budget);
+        int[] path;
+        try {
+            path = search.solve();
+        } finally {
+            this.metrics.expanded = search.nodes();
+            this.metrics.generated = search.generated();
+            this.metrics.duplicates = search.duplicates();
+            this.metrics.peakOpen = search.peakOpen();
+        }
+        return replay(initial, path);
+    }
+
+    /**
+     * Данный метод упаковывает найденные ходы в решение; board решения строятся только по запросу.
+     *
+     * @param initial
+     * @param path
+     *
+     * @return решение
+     */
+    private Solution replay(Board initial, int[] path) {
+        long start = System.nanoTime();
+        Solution solution = new Solution(initial, path);
+        this.metrics.reconstructionNanos = System.nanoTime() - start;
+        return solution;
+    }
+
+    /**
+     * \brief Данный метод запускает решение головоломки с помощью алгоритма A*.
+     * \details Узлы дерева поиска хранятся не объектами, а в NodeArena: упакованный board и связь
+     * "родитель + ход" (12 байт на узел для 4x4). Открытые узлы - номера в IntBucketQueue,
+     * из неё же берутся приоритет f и оценка h извлечённого узла, а количество ходов равно f - h.
+     * Раскрываемый узел загружается в один изменяемый board, соседи получаются сдвигом на месте (Expander).
+     * При равном приоритете первым раскрывается узел, более близкий к цели по оценке.
+     * Когда цель найдена, ходы восстанавливаются по связям и упаковываются методом replay().
+     *
+     * @param initial
+     *
+     * @return решение
+     */
+    private Solution startSolving(Board initial) {
+        Board board = new Board(initial);
+        NodeArena arena = new NodeArena(board.stateLength());
+        IntBucketQueue open = new IntBucketQueue();
+        StateTable closed = new StateTable(initial.dimension());
+        int estimate = this.heuristic.estimate(board);
+        open.insert(arena.add(board, -1, 0), estimate, estimate);
+        closed.put(initial, 0);
+        Expander expander = new Expander(open, closed, arena);
+        while (true) {
+            int node = open.delMin();
+            int priority = open.lastPriority();
+            estimate = open.lastEstimate();
+            int moves = priority - estimate;
+            arena.load(node, board);
+            if (closed.get(board) < moves) {
+                this.metrics.duplicates++;
+                continue;
             }
+            if (board.isGoal()) {
+                return replay(initial, arena.path(node));
+            }
+            if ((++this.metrics.expanded & (SearchBudget.CHECK_INTERVAL - 1)) == 0)
+                this.budget.check(this.metrics.expanded, open.size(), priority);
+            expander.expand(node, board, moves, estimate);
+            if (open.size() > this.metrics.peakOpen)
+                this.metrics.peakOpen = open.size();
+        }
+    }
+
+    /**
+     * Данный класс сохраняет всех полученных соседей раскрываемого узла.
+     * \details Соседи перебираются методом Board.forEachNeighbor(): board сдвигается на месте,
+     * после чего сдвиг отменяется, поэтому объект создаётся один на решение.
+     * Сосед не добавляется, если до того же board уже найден путь
+     * не длиннее текущего: такой board хранится в таблице closed вместе с наименьшим числом ходов до него.
+     * Если найден более короткий путь, board открывается заново.
+     * Для board больше 4x4 таблица хранит ссылки на board, поэтому в неё кладётся копия.
+     */
+    private final class Expander implements Board.NeighborVisitor {
+        private final IntBucketQueue open;
+        private final StateTable closed;
+        private final NodeArena arena;
+        private int node;
+        private int moves;
+        private int estimate;
+
+        /**
+         * @param open
+         * @param closed
+         * @param arena
+         */
+        Expander(IntBucketQueue open, StateTable closed, NodeArena arena) {
+            this.open = open;
+            this.closed = closed;
+            this.arena = arena;
+        }
+
+        /**
+         * Данный метод раскрывает узел.
+         *
+         * @param node номер раскрываемого узла
+         * @param board board раскрываемого узла
+         * @param moves количество ходов до раскрываемого узла
+         * @param estimate оценка раскрываемого узла
+         */
+        void expand(int node, Board board, int moves, int estimate) {
+            this.node = node;
+            this.moves = moves;
+            this.estimate = estimate;
+            board.forEachNeighbor(-1, this);
         }
-        if (this.init.dimension() % 2 == 0) {
-            sum += zeroRow;
+
+        @Override
+        public void neighbor(Board board, int direction, int tile, int from, int to) {
+            metrics.generated++;
+            int known = this.closed.get(board);
+            if (known != StateTable.NOT_FOUND && known <= this.moves + 1) {
+                metrics.duplicates++;
+            } else {
+                this.closed.put(board.isCompact() ? board : new Board(board), this.moves + 1);
+                int childEstimate = heuristic.update(board, this.estimate, tile, from, to);
+                this.open.insert(this.arena.add(board, this.node, direction),
+                        this.moves + 1 + childEstimate, childEstimate);
+            }
         }
-        return sum % 2 == 0;
+    }
+
+    /**
+     * \brief Данный метод возвращает количество повторных board, отброшенных во время поиска.
+     * \details Учитываются как соседи, до которых уже был найден не более длинный путь,
+     * так и устаревшие узлы, извлечённые из очереди после нахождения более короткого пути.
+     *
+     * @return this.metrics.duplicates()
+     */
+    public long duplicatesPruned() {
+        return this.metrics.duplicates();
+    }
+
+    /**
+     * Данный метод возвращает название используемой эвристики.
+     *
+     * @return например "manhattan" или "pdb 6-6-3"
+     */
+    public String heuristicName() {
+        return this.heuristic.name();
+    }
+
+    /**
+     * Данный метод возвращает количество вычислений эвристики за время решения.
+     *
+     * @return количество вызовов
+     */
+    public long heuristicCalls() {
+        return this.heuristic.calls();
+    }
+
+    /**
+     * Данный метод возвращает суммарное время вычисления эвристики в наносекундах.
+     *
+     * @return время
+     */
+    public long heuristicNanos() {
+        return this.heuristic.nanos();
+    }
+
+    /**
+     * Данный метод возвращает количество раскрытых узлов.
+     *
+     * @return this.metrics.expanded()
+     */
+    public long nodesExpanded() {
+        return this.metrics.expanded();
+    }
+
+    /**
+     * Данный метод возвращает количество итераций углубления IDA* (0 для A*).
+     *
+     * @return this.metrics.iterations()
+     */
+    public int iterations() {
+        return this.metrics.iterations();
+    }
+
+    /**
+     * Данный метод возвращает время решения в наносекундах.
+     *
+     * @return this.metrics.totalNanos()
+     */
+    public long elapsedNanos() {
+        return this.metrics.totalNanos();
+    }
+
+    /**
+     * Данный метод возвращает скорость поиска - количество раскрытых узлов в секунду.
+     *
+     * @return nodes / seconds
+     */
+    public double nodesPerSecond() {
+        return this.metrics.nodesPerSecond();
+    }
+
+    /**
+     * Данный метод возвращает метрики решения.
+     *
+     * @return this.metrics
+     */
+    public SearchMetrics metrics() {
+        return this.metrics;
+    }
+
+    /**
+     * С помощью данного метода проверяется решаема ли игра или нет.
+     * Решаемость вычисляется один раз в конструкторе (Board.isSolvable()), поэтому проверка выполняется за O(1).
+     *
+     * @return this.solvable
+     */
+    public boolean isSolvable(){
+        return this.solvable;
     }
 
     /**
      * С помощью данного метода мы находим количество движений,
      * которые мы совершили для решения данной головоломки.
      *
-     * @return target.moves;
+     * @return target.length();
      */
     public int moves(){
         if (target == null) return -1;
-        return target.moves;
+        return target.length();
     }
 
     /**
-     * Данный метод, записывает в стэк последавтельность board,
+     * Данный метод возвращает последовательность board,
      * который приведут к решению данной игры за минимальное количество ходов.
-     * Т.е. записывает решение.
+     * Т.е. возвращает решение: ходы хранятся компактно, а board строятся лениво при переборе.
      *
-     * @return solutionStack;
+     * @return решение или null, если board не решаем
      */
-    public Iterable<Board> solution() {
+    public Solution solution() {
         if (!this.isSolvable())
             return null;
+        return this.target;
+    }
 
-        Stack<Board> solutionStack = new Stack<Board>();
-        for (Node curr = target; curr != null; curr = curr.prev) {
-            solutionStack.push(curr.board);
-        }
-        return solutionStack;
+    /**
+     * \brief Данный метод возвращает решение в виде строки ходов пустой клетки.
+     * \details Буквы U, D, L, R - ход пустой клетки вверх, вниз, влево и вправо.
+     *
+     * @return строка ходов или null, если решения нет
+     */
+    public String moveString() {
+        if (this.target == null)
+            return null;
+        return this.target.toString();
     }
 
     /**
@@ -192,7 +675,10 @@ public class Solver {
      * с данным двумерным массивом. И запускается решение данной игры.
      *
      * После выводится Решение данной головоломки.
-     * @param args
+     * @param args необязательные имя алгоритма (любое из имён Engine.forName(), например "astar", "ida", "mm")
+     *             и имя эвристики ("manhattan", "linear", "walking", "pdb"), по умолчанию берутся из свойств
+     *             solver.engine и solver.heuristic
+     * @throws IllegalArgumentException если имя алгоритма или эвристики неизвестно
      */
     public static void main(String[] args) {
         In in = new In();
@@ -203,17 +689,31 @@ public class Solver {
                 blocks[i][j] = in.readInt();
         Board initial = new Board(blocks);
 
-        Solver solver = new Solver(initial);
+        Engine engine = Engine.forName(args.length > 0 ? args[0] : System.getProperty("solver.engine"));
+        Heuristic heuristic = Heuristic.forName(args.length > 1 ? args[1] : System.getProperty("solver.heuristic"), N);
+        Solver solver = new Solver(initial, engine, heuristic);
 
         if (!solver.isSolvable())
             StdOut.println("No solution possible");
         else {
             StdOut.println("Minimum number of moves = " + solver.moves());
-            for (Board board : solver.solution()) {
-                StdOut.println("Manhatten = " + board.manhattan());
-                StdOut.println("Hamming = " + board.hamming());
+            StdOut.printf("Heuristic = %s (%d evaluations, %.0f ns each)%n", solver.heuristicName(),
+                    solver.heuristicCalls(), solver.heuristicCalls() == 0 ? 0.0 : (double) solver.heuristicNanos() / solver.heuristicCalls());
+            StdOut.println("Duplicates pruned = " + solver.duplicatesPruned());
+            if (engine == Engine.IDASTAR || engine == Engine.ANYTIME)
+                StdOut.println("Iterations = " + solver.iterations());
+            if (engine == Engine.ANYTIME)
+                StdOut.printf("Suboptimality <= %.2f%n", solver.metrics().suboptimality());
+            StdOut.printf("Nodes expanded = %d (%.0f nodes/sec)%n", solver.nodesExpanded(), solver.nodesPerSecond());
+            StdOut.println("Metrics: " + solver.metrics());
+            StdOut.println("Moves = " + solver.moveString());
+            Solution.Cursor cursor = solver.solution().cursor();
+            do {
+                Board board = cursor.board();
+                StdOut.println("Manhatten = " + board.getManhattanNumber());
+                StdOut.println("Hamming = " + board.getHammingNumber());
                 StdOut.println(board);
-            }
+            } while (cursor.forward());
         }
     }
 }
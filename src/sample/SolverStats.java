@@ -0,0 +1,165 @@
+package sample;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс накапливает метрики всех решений процесса и публикует их как MBean.
+ * \details Единственный экземпляр регистрируется в платформенном MBeanServer под именем
+ * sample:type=SolverStats при первом обращении, так что итоги видны в jconsole / VisualVM.
+ * Счётчики атомарные: решения могут заканчиваться в разных потоках (BatchSolver).
+ */
+public class SolverStats implements SolverStatsMBean {
+    public static final String NAME = "sample:type=SolverStats";
+    private static final SolverStats INSTANCE = register(new SolverStats());
+
+    private final AtomicLong solves = new AtomicLong();
+    private final AtomicLong unsolvable = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong expanded = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong peakOpen = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicLong heuristicNanos = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private volatile SearchMetrics last = null;
+
+    /**
+     * Данный метод возвращает общий для процесса экземпляр.
+     *
+     * @return INSTANCE
+     */
+    public static SolverStats get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Данный метод регистрирует stats в платформенном MBeanServer; при ошибке итоги просто не публикуются.
+     *
+     * @param stats
+     * @return stats
+     */
+    private static SolverStats register(SolverStats stats) {
+        try {
+            ObjectName name = new ObjectName(NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+                ManagementFactory.getPlatformMBeanServer().registerMBean(stats, name);
+        } catch (JMException | SecurityException e) {
+            System.err.println("SolverStats is not exported: " + e);
+        }
+        return stats;
+    }
+
+    /**
+     * \brief Данный метод добавляет метрики законченного решения к итогам.
+     *
+     * @param metrics
+     */
+    public void record(SearchMetrics metrics) {
+        this.solves.incrementAndGet();
+        if (!metrics.solvable())
+            this.unsolvable.incrementAndGet();
+        if (metrics.aborted())
+            this.aborted.incrementAndGet();
+        this.generated.addAndGet(metrics.generated());
+        this.expanded.addAndGet(metrics.expanded());
+        this.duplicates.addAndGet(metrics.duplicates());
+        this.searchNanos.addAndGet(metrics.searchNanos());
+        this.heuristicNanos.addAndGet(metrics.heuristicNanos());
+        if (metrics.allocatedBytes() > 0)
+            this.allocatedBytes.addAndGet(metrics.allocatedBytes());
+        long peak;
+        do {
+            peak = this.peakOpen.get();
+        } while (metrics.peakOpen() > peak && !this.peakOpen.compareAndSet(peak, metrics.peakOpen()));
+        this.last = metrics;
+    }
+
+    @Override
+    public long getSolves() {
+        return this.solves.get();
+    }
+
+    @Override
+    public long getUnsolvable() {
+        return this.unsolvable.get();
+    }
+
+    @Override
+    public long getAborted() {
+        return this.aborted.get();
+    }
+
+    @Override
+    public long getNodesGenerated() {
+        return this.generated.get();
+    }
+
+    @Override
+    public long getNodesExpanded() {
+        return this.expanded.get();
+    }
+
+    @Override
+    public long getDuplicates() {
+        return this.duplicates.get();
+    }
+
+    @Override
+    public long getPeakOpen() {
+        return this.peakOpen.get();
+    }
+
+    @Override
+    public long getSearchMillis() {
+        return this.searchNanos.get() / 1000000;
+    }
+
+    @Override
+    public long getHeuristicMillis() {
+        return this.heuristicNanos.get() / 1000000;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return this.allocatedBytes.get();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        long nanos = this.searchNanos.get();
+        return nanos == 0 ? 0 : this.expanded.get() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getBytesPerNode() {
+        long nodes = this.generated.get();
+        return nodes == 0 ? 0 : (double) this.allocatedBytes.get() / nodes;
+    }
+
+    @Override
+    public double getLastBranchingFactor() {
+        SearchMetrics metrics = this.last;
+        return metrics == null ? 0 : metrics.branchingFactor();
+    }
+
+    @Override
+    public String getLastSolve() {
+        SearchMetrics metrics = this.last;
+        return metrics == null ? "" : metrics.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (AtomicLong counter : new AtomicLong[] {this.solves, this.unsolvable, this.aborted, this.generated,
+                this.expanded, this.duplicates, this.peakOpen, this.searchNanos, this.heuristicNanos, this.allocatedBytes})
+            counter.set(0);
+        this.last = null;
+    }
+}
@@ -0,0 +1,57 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный интерфейс - итоги всех решений процесса, доступные через JMX (sample:type=SolverStats).
+ */
+public interface SolverStatsMBean {
+
+    /** @return количество законченных решений */
+    long getSolves();
+
+    /** @return количество нерешаемых board */
+    long getUnsolvable();
+
+    /** @return количество прерванных поисков */
+    long getAborted();
+
+    /** @return сумма сгенерированных узлов */
+    long getNodesGenerated();
+
+    /** @return сумма раскрытых узлов */
+    long getNodesExpanded();
+
+    /** @return сумма отброшенных повторных board */
+    long getDuplicates();
+
+    /** @return наибольший размер открытого списка среди всех решений */
+    long getPeakOpen();
+
+    /** @return суммарное время поиска в миллисекундах */
+    long getSearchMillis();
+
+    /** @return суммарное время вычисления эвристики в миллисекундах */
+    long getHeuristicMillis();
+
+    /** @return сумма выделенных за решения байт */
+    long getAllocatedBytes();
+
+    /** @return раскрытых узлов в секунду по всем решениям */
+    double getNodesPerSecond();
+
+    /** @return выделенных байт на сгенерированный узел по всем решениям */
+    double getBytesPerNode();
+
+    /** @return эффективный коэффициент ветвления последнего решения */
+    double getLastBranchingFactor();
+
+    /** @return метрики последнего решения одной строкой */
+    String getLastSolve();
+
+    /**
+     * Данный метод обнуляет итоги.
+     */
+    void reset();
+}
@@ -0,0 +1,158 @@
+package sample;
+
+import java.util.Arrays;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - хэш-таблица с открытой адресацией, которая сопоставляет состоянию board целое число
+ * (например, наименьшее найденное количество ходов до него).
+ * \details Для board до 4x4 ключом служит само упакованное число long, для больших board хранится ссылка на board.
+ * Ключи и значения лежат в примитивных массивах, поэтому поиск и вставка не создают объектов.
+ */
+public class StateTable {
+    public static final int NOT_FOUND = -1;
+
+    private final boolean compact;
+    private long[] keys;
+    private Board[] boards;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * \brief Данный конструктор создаёт пустую таблицу для board заданной размерности.
+     *
+     * @param dimension
+     */
+    public StateTable(int dimension) {
+        this.compact = dimension <= 4;
+        this.allocate(1 << 16);
+    }
+
+    /**
+     * Данный метод выделяет массивы таблицы заданной ёмкости (степень двойки).
+     *
+     * @param capacity
+     */
+    private void allocate(int capacity) {
+        if (this.compact)
+            this.keys = new long[capacity];
+        else
+            this.boards = new Board[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, NOT_FOUND);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Данный метод возвращает начальную ячейку поиска для board.
+     *
+     * @param board
+     * @return индекс ячейки
+     */
+    private int slot(Board board) {
+        if (this.compact)
+            return this.slot(board.packed());
+        return (board.hashCode() * 0x9E3779B9) & this.mask;
+    }
+
+    /**
+     * Данный метод возвращает начальную ячейку поиска для упакованного board.
+     *
+     * @param key
+     * @return индекс ячейки
+     */
+    private int slot(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32)) & this.mask;
+    }
+
+    /**
+     * \brief Данный метод находит ячейку, в которой лежит board, либо пустую ячейку, куда его можно положить.
+     *
+     * @param board
+     * @return индекс ячейки
+     */
+    private int find(Board board) {
+        int i = this.slot(board);
+        if (this.compact) {
+            long key = board.packed();
+            while (this.values[i] != NOT_FOUND && this.keys[i] != key)
+                i = (i + 1) & this.mask;
+        } else {
+            while (this.values[i] != NOT_FOUND && !board.equals(this.boards[i]))
+                i = (i + 1) & this.mask;
+        }
+        return i;
+    }
+
+    /**
+     * Данный метод возвращает значение, сохранённое для board.
+     *
+     * @param board
+     * @return значение или NOT_FOUND
+     */
+    public int get(Board board) {
+        return this.values[this.find(board)];
+    }
+
+    /**
+     * \brief Данный метод сохраняет значение для board, заменяя старое.
+     *
+     * @param board
+     * @param value неотрицательное значение
+     */
+    public void put(Board board, int value) {
+        int i = this.find(board);
+        if (this.values[i] == NOT_FOUND) {
+            if (2 * (this.size + 1) > this.values.length) {
+                this.grow();
+                i = this.find(board);
+            }
+            this.size++;
+            if (this.compact)
+                this.keys[i] = board.packed();
+            else
+                this.boards[i] = board;
+        }
+        this.values[i] = value;
+    }
+
+    /**
+     * Данный метод возвращает количество сохранённых board.
+     *
+     * @return this.size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Данный метод увеличивает таблицу вдвое и перекладывает в неё все ключи.
+     */
+    private void grow() {
+        long[] oldKeys = this.keys;
+        Board[] oldBoards = this.boards;
+        int[] oldValues = this.values;
+        this.allocate(oldValues.length * 2);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == NOT_FOUND)
+                continue;
+            int i;
+            if (this.compact) {
+                i = this.slot(oldKeys[j]);
+                while (this.values[i] != NOT_FOUND)
+                    i = (i + 1) & this.mask;
+                this.keys[i] = oldKeys[j];
+            } else {
+                i = this.slot(oldBoards[j]);
+                while (this.values[i] != NOT_FOUND)
+                    i = (i + 1) & this.mask;
+                this.boards[i] = oldBoards[j];
+            }
+            this.values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package sample;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс-обёртка измеряет время вычисления другой эвристики.
+ * \details Считается количество вызовов и суммарное время в наносекундах.
+ * Счётчики не синхронизированы: одна обёртка используется одним поиском.
+ */
+public class TimedHeuristic implements Heuristic {
+    private final Heuristic heuristic;
+    private long calls = 0;
+    private long nanos = 0;
+
+    /**
+     * @param heuristic измеряемая эвристика
+     */
+    public TimedHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public String name() {
+        return this.heuristic.name();
+    }
+
+    @Override
+    public int estimate(Board board) {
+        long start = System.nanoTime();
+        int result = this.heuristic.estimate(board);
+        this.nanos += System.nanoTime() - start;
+        this.calls++;
+        return result;
+    }
+
+    @Override
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        long start = System.nanoTime();
+        int result = this.heuristic.update(board, estimate, tile, from, to);
+        this.nanos += System.nanoTime() - start;
+        this.calls++;
+        return result;
+    }
+
+    /**
+     * Данный метод возвращает количество вычислений оценки.
+     *
+     * @return this.calls
+     */
+    public long calls() {
+        return this.calls;
+    }
+
+    /**
+     * Данный метод возвращает суммарное время вычислений оценки в наносекундах.
+     *
+     * @return this.nanos
+     */
+    public long nanos() {
+        return this.nanos;
+    }
+}
@@ -0,0 +1,190 @@
+package sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Stas.Maslov
+ * @author Ilya.Tyugashev
+ * @version 1.2.1
+ * \brief Данный класс - эвристика "walking distance" (WD).
+ * \details Board описывается таблицей: сколько клеток каждой целевой строки стоит в каждой строке,
+ * плюс строка пустой клетки. Вертикальный ход переносит одну клетку в соседнюю строку.
+ * Наименьшее количество таких переносов до целевой таблицы заранее находится поиском в ширину
+ * и хранится в отсортированном массиве ключей. То же самое для столбцов, сумма двух значений
+ * и есть оценка. Таблица строится для board до 4x4 (для 4x4 - 24964 состояния).
+ */
+public class WalkingDistanceHeuristic implements Heuristic {
+    private static final Map<Integer, WalkingDistanceHeuristic> TABLES = new HashMap<Integer, WalkingDistanceHeuristic>();
+
+    private final int dimension;
+    private final long[] keys;
+    private final byte[] distances;
+
+    /**
+     * \brief Данный конструктор берёт таблицу для board заданной размерности (строит её при первом обращении).
+     *
+     * @param dimension от 2 до 4
+     * @throws IllegalArgumentException для board больше 4x4
+     */
+    public WalkingDistanceHeuristic(int dimension) {
+        if (dimension < 2 || dimension > 4)
+            throw new IllegalArgumentException("Walking distance supports boards up to 4x4, got " + dimension);
+        WalkingDistanceHeuristic table = table(dimension);
+        this.dimension = dimension;
+        this.keys = table.keys;
+        this.distances = table.distances;
+    }
+
+    /**
+     * Данный конструктор хранит уже построенную таблицу.
+     *
+     * @param dimension
+     * @param keys
+     * @param distances
+     */
+    private WalkingDistanceHeuristic(int dimension, long[] keys, byte[] distances) {
+        this.dimension = dimension;
+        this.keys = keys;
+        this.distances = distances;
+    }
+
+    /**
+     * Данный метод возвращает общую для процесса таблицу для заданной размерности.
+     *
+     * @param dimension
+     * @return таблица
+     */
+    private static synchronized WalkingDistanceHeuristic table(int dimension) {
+        WalkingDistanceHeuristic table = TABLES.get(dimension);
+        if (table == null) {
+            table = generate(dimension);
+            TABLES.put(dimension, table);
+        }
+        return table;
+    }
+
+    /**
+     * \brief Данный метод строит таблицу поиском в ширину от целевой таблицы.
+     * \details Ключ: по 3 бита на количество клеток с целевой строкой g в строке r
+     * (бит 3 * (r * dimension + g)), выше - строка пустой клетки.
+     *
+     * @param dimension
+     * @return таблица
+     */
+    private static WalkingDistanceHeuristic generate(int dimension) {
+        int blankShift = 3 * dimension * dimension;
+        long goal = (long) (dimension - 1) << blankShift;
+        for (int r = 0; r < dimension; r++)
+            goal += (long) (r == dimension - 1 ? dimension - 1 : dimension) << 3 * (r * dimension + r);
+
+        Map<Long, Integer> seen = new HashMap<Long, Integer>();
+        List<Long> queue = new ArrayList<Long>();
+        seen.put(goal, 0);
+        queue.add(goal);
+        for (int head = 0; head < queue.size(); head++) {
+            long key = queue.get(head);
+            int distance = seen.get(key);
+            int blankRow = (int) (key >>> blankShift);
+            for (int row = blankRow - 1; row <= blankRow + 1; row += 2) {
+                if (row < 0 || row >= dimension)
+                    continue;
+                for (int g = 0; g < dimension; g++) {
+                    if (((key >>> 3 * (row * dimension + g)) & 7) == 0)
+                        continue;
+                    long next = key - (1L << 3 * (row * dimension + g)) + (1L << 3 * (blankRow * dimension + g));
+                    next = (next & ((1L << blankShift) - 1)) | ((long) row << blankShift);
+                    if (!seen.containsKey(next)) {
+                        seen.put(next, distance + 1);
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+
+        long[] keys = new long[seen.size()];
+        int i = 0;
+        for (long key : seen.keySet())
+            keys[i++] = key;
+        Arrays.sort(keys);
+        byte[] distances = new byte[keys.length];
+        for (i = 0; i < keys.length; i++)
+            distances[i] = (byte) (int) seen.get(keys[i]);
+        return new WalkingDistanceHeuristic(dimension, keys, distances);
+    }
+
+    /**
+     * Данный метод возвращает количество состояний таблицы.
+     *
+     * @return keys.length
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public String name() {
+        return "walking distance";
+    }
+
+    @Override
+    public int estimate(Board board) {
+        return this.lookup(this.key(board, false)) + this.lookup(this.key(board, true));
+    }
+
+    /**
+     * \brief Данный метод пересчитывает оценку после сдвига клетки.
+     * \details Сдвиг вдоль строки не меняет таблицу строк, поэтому пересчитывается только таблица столбцов
+     * (и наоборот). Ключ до хода получается из ключа после хода переносом одной клетки обратно.
+     */
+    @Override
+    public int update(Board board, int estimate, int tile, int from, int to) {
+        int n = this.dimension;
+        boolean columns = from / n == to / n;
+        long after = this.key(board, columns);
+        int lineFrom = columns ? from % n : from / n;
+        int lineTo = columns ? to % n : to / n;
+        int g = columns ? (tile - 1) % n : (tile - 1) / n;
+        int blankShift = 3 * n * n;
+        long before = after - (1L << 3 * (lineTo * n + g)) + (1L << 3 * (lineFrom * n + g));
+        before = (before & ((1L << blankShift) - 1)) | ((long) lineTo << blankShift);
+        return estimate - this.lookup(before) + this.lookup(after);
+    }
+
+    /**
+     * \brief Данный метод строит ключ таблицы строк (columns = false) или столбцов (columns = true) для board.
+     * \details Для столбцов board мысленно транспонируется; целевое положение пустой клетки при этом не меняется,
+     * поэтому подходит та же таблица.
+     *
+     * @param board
+     * @param columns
+     * @return ключ
+     */
+    private long key(Board board, boolean columns) {
+        int n = this.dimension;
+        long key = 0;
+        for (int cell = 0; cell < n * n; cell++) {
+            int tile = board.tile(cell);
+            if (tile == 0)
+                continue;
+            int line = columns ? cell % n : cell / n;
+            int g = columns ? (tile - 1) % n : (tile - 1) / n;
+            key += 1L << 3 * (line * n + g);
+        }
+        int blank = board.blankIndex();
+        return key | ((long) (columns ? blank % n : blank / n) << 3 * n * n);
+    }
+
+    /**
+     * Данный метод находит расстояние для ключа двоичным поиском.
+     *
+     * @param key
+     * @return расстояние
+     */
+    private int lookup(long key) {
+        return this.distances[Arrays.binarySearch(this.keys, key)];
+    }
+}